@@ -14,15 +14,74 @@
  */
 package com.formkiq.gradle;
 
+import com.formkiq.gradle.internal.BuildScheduler;
+import com.formkiq.gradle.internal.ClassStore;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Property;
 import org.gradle.api.services.BuildService;
 import org.gradle.api.services.BuildServiceParameters;
-import org.gradle.api.services.BuildServiceParameters.None;
 
-/** Graalvm {@link BuildService}. */
-public class GraalvmBuildService implements BuildService<BuildServiceParameters.None> {
+/** Graalvm {@link BuildService}, shared by every project of the build. */
+public abstract class GraalvmBuildService implements BuildService<GraalvmBuildService.Params> {
 
-  @Override
-  public None getParameters() {
-    return null;
+  /** {@link ClassStore}. */
+  private ClassStore classStore;
+
+  /** {@link BuildScheduler}. */
+  private BuildScheduler scheduler;
+
+  /** constructor. */
+  public GraalvmBuildService() {}
+
+  /**
+   * Get the build-wide {@link ClassStore}.
+   *
+   * @return {@link ClassStore}
+   */
+  public synchronized ClassStore getClassStore() {
+    if (this.classStore == null) {
+      this.classStore = new ClassStore(getParameters().getClassStoreDirectory().get().getAsFile()
+          .toPath(), getParameters().getClassStoreMaxSize().get().longValue());
+    }
+    return this.classStore;
+  }
+
+  /**
+   * Get the {@link BuildScheduler} admitting native builds.
+   *
+   * @return {@link BuildScheduler}
+   */
+  public synchronized BuildScheduler getScheduler() {
+    if (this.scheduler == null) {
+      this.scheduler =
+          new BuildScheduler(getParameters().getFootprintFile().get().getAsFile().toPath());
+    }
+    return this.scheduler;
+  }
+
+  /** {@link GraalvmBuildService} parameters. */
+  public interface Params extends BuildServiceParameters {
+
+    /**
+     * Get {@link ClassStore} Directory.
+     *
+     * @return {@link DirectoryProperty}
+     */
+    DirectoryProperty getClassStoreDirectory();
+
+    /**
+     * Get Maximum size in bytes of the {@link ClassStore}.
+     *
+     * @return {@link Property}
+     */
+    Property<Long> getClassStoreMaxSize();
+
+    /**
+     * Get File the observed native build footprints are persisted to.
+     *
+     * @return {@link RegularFileProperty}
+     */
+    RegularFileProperty getFootprintFile();
   }
 }
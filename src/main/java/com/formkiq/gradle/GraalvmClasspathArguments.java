@@ -12,35 +12,76 @@ import java.util.stream.Collectors;
 import org.gradle.internal.os.OperatingSystem;
 
 /** {@link Function} to transform -cp for graalvm. */
-public class GraalvmClasspathArguments implements Function<GraalvmNativeExtension, List<String>> {
+public class GraalvmClasspathArguments implements Function<NativeImageSpec, List<String>> {
+
+  /** Classpath mode passing the exploded classpath directory. */
+  public static final String MODE_EXPLODED = "exploded";
+
+  /** Classpath mode passing the runtime classpath jars directly. */
+  public static final String MODE_JARS = "jars";
 
   /** Build Dir. */
   private final Path buildDir;
 
+  /** Classpath jars, null to use the exploded classpath directory. */
+  private final List<File> jars;
+
+  /** Directory additional classpaths are resolved against, null to use the working directory. */
+  private final Path baseDir;
+
   /**
    * constructor.
    *
    * @param buildDir {@link Path}
    */
   public GraalvmClasspathArguments(final Path buildDir) {
+    this(buildDir, null);
+  }
+
+  /**
+   * constructor.
+   *
+   * @param buildDir {@link Path}
+   * @param classpathJars {@link List} {@link File} jars, null to use the exploded classpath
+   */
+  public GraalvmClasspathArguments(final Path buildDir, final List<File> classpathJars) {
+    this(buildDir, classpathJars, null);
+  }
+
+  /**
+   * constructor.
+   *
+   * @param buildDir {@link Path}
+   * @param classpathJars {@link List} {@link File} jars, null to use the exploded classpath
+   * @param baseDirectory {@link Path} additional classpaths are resolved against, null to use the
+   *        working directory
+   */
+  public GraalvmClasspathArguments(final Path buildDir, final List<File> classpathJars,
+      final Path baseDirectory) {
     this.buildDir = buildDir;
+    this.jars = classpathJars;
+    this.baseDir = baseDirectory;
   }
 
   @Override
-  public List<String> apply(final GraalvmNativeExtension extension) {
-    return List.of("-cp", buildClassPathString(extension));
+  public List<String> apply(final NativeImageSpec spec) {
+    return List.of("-cp", buildClassPathString(spec));
   }
 
-  private String buildClassPathString(final GraalvmNativeExtension extension) {
+  private String buildClassPathString(final NativeImageSpec spec) {
 
     List<File> files = new ArrayList<>();
 
-    Path path = buildDir.resolve(NativeImageExecutor.GRAALVM_JAVA_MAIN);
-    files.add(path.toFile());
-    addClasspaths(extension, files);
+    if (this.jars != null) {
+      files.addAll(this.jars);
+    } else {
+      Path path = buildDir.resolve(NativeImageExecutor.GRAALVM_JAVA_MAIN);
+      files.add(path.toFile());
+    }
+    addClasspaths(spec, files);
 
     return files.stream().map(File::getAbsolutePath)
-        .map(s -> extension.getDockerImage() != null ? formatToUnix(s) : s)
+        .map(s -> spec.getDockerImage() != null ? formatToUnix(s) : s)
         .collect(Collectors.joining(OperatingSystem.current().isWindows() ? ";" : ":"));
   }
 
@@ -49,12 +90,12 @@ public class GraalvmClasspathArguments implements Function<GraalvmNativeExtensio
    *
    * @param volumeMounts {@link List} {@link File}
    */
-  private void addClasspaths(final GraalvmNativeExtension extension,
-      final List<File> volumeMounts) {
-    if (extension.getAddClasspath() != null) {
-      String[] cp = extension.getAddClasspath().split(",");
+  private void addClasspaths(final NativeImageSpec spec, final List<File> volumeMounts) {
+    if (spec.getAddClasspath() != null) {
+      String[] cp = spec.getAddClasspath().split(",");
       for (String c : cp) {
-        volumeMounts.add(new File(c));
+        volumeMounts
+            .add(this.baseDir != null ? this.baseDir.resolve(c.trim()).toFile() : new File(c));
       }
     }
   }
@@ -0,0 +1,92 @@
+/**
+ * Copyright [2020] FormKiQ Inc. Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the License
+ * at
+ *
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.formkiq.gradle;
+
+import com.formkiq.gradle.internal.ClassStore;
+import com.formkiq.gradle.services.RuntimeDependenciesDecompress;
+import javax.inject.Inject;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Classpath;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.work.DisableCachingByDefault;
+import org.gradle.workers.WorkerExecutor;
+
+/** Explodes the runtime classpath into the directory passed to native-image. */
+@DisableCachingByDefault(because = "Exploding jars is cheaper than packing them for the cache")
+public abstract class GraalvmClasspathTask extends DefaultTask {
+
+  /**
+   * Runtime classpath (jars/classes/resources) for native-image.
+   *
+   * @return ConfigurableFileCollection
+   */
+  @Classpath
+  public abstract ConfigurableFileCollection getRuntimeClasspath();
+
+  /**
+   * Graalvm build directory, the classpath is exploded into its "java/main" directory.
+   *
+   * @return DirectoryProperty
+   */
+  @Internal
+  public abstract DirectoryProperty getBuildDirectory();
+
+  /**
+   * Exploded classpath directory.
+   *
+   * @return DirectoryProperty
+   */
+  @OutputDirectory
+  public abstract DirectoryProperty getClasspathDirectory();
+
+  /**
+   * Whether the classpath is assembled from the build-wide {@link ClassStore}.
+   *
+   * @return Property
+   */
+  @Input
+  public abstract Property<Boolean> getEnableClassStore();
+
+  /**
+   * {@link GraalvmBuildService} owning the build-wide {@link ClassStore}.
+   *
+   * @return Property
+   */
+  @Internal
+  public abstract Property<GraalvmBuildService> getBuildService();
+
+  /**
+   * Get {@link WorkerExecutor}.
+   *
+   * @return {@link WorkerExecutor}
+   */
+  @Inject
+  protected abstract WorkerExecutor getWorkerExecutor();
+
+  /** Explode the runtime classpath. */
+  @TaskAction
+  public void explode() {
+    ClassStore store =
+        getEnableClassStore().get().booleanValue() ? getBuildService().get().getClassStore() : null;
+    new RuntimeDependenciesDecompress(getWorkerExecutor(), store)
+        .apply(getBuildDirectory().get().getAsFile().toPath(), getRuntimeClasspath());
+  }
+}
@@ -14,6 +14,9 @@
  */
 package com.formkiq.gradle;
 
+import com.formkiq.gradle.internal.Downloader;
+import com.formkiq.gradle.internal.ExtractionFilter;
+import com.formkiq.gradle.internal.ToolchainCache;
 import java.util.List;
 import javax.inject.Inject;
 import org.gradle.api.model.ObjectFactory;
@@ -35,12 +38,24 @@ public class GraalvmNativeExtension {
   /** Build Options . */
   private Property<String> buildOptions;
 
+  /** Maximum heap of the native-image builder, e.g. "6g". */
+  private Property<String> builderMaxHeap;
+
+  /** Number of threads of the native-image builder. */
+  private Property<Integer> builderParallelism;
+
   /** Additional Classpaths comma separated. */
   private Property<String> addClasspath;
 
   /** Enable using Graalvm Docker Image. */
   private Property<String> dockerImage;
 
+  /** Maximum number of parallel connections used to download GraalVM. */
+  private Property<Integer> downloadConnections;
+
+  /** Size in bytes of a single HTTP Range request used to download GraalVM. */
+  private Property<Long> downloadSegmentSize;
+
   /** Enable Add All Charsets. */
   private Property<Boolean> enableAddAllCharsets;
 
@@ -89,12 +104,30 @@ public class GraalvmNativeExtension {
   /** Build statically linked executable. */
   private Property<Boolean> enableStatic;
 
+  /** Enable extracting the GraalVM archive while it is downloaded. */
+  private Property<Boolean> enableStreamingExtraction;
+
+  /** Enable the build-wide store of exploded jars. */
+  private Property<Boolean> enableClassStore;
+
+  /** Enable keeping the GraalVM archive in the toolchain cache once extracted. */
+  private Property<Boolean> enableKeepImageArchive;
+
   /** Enable verbose output. */
   private Property<Boolean> enableVerbose;
 
+  /** GraalVM archive extraction profile. */
+  private Property<String> extractionProfile;
+
+  /** How the runtime classpath is passed to native-image. */
+  private Property<String> classpathMode;
+
   /** a comma-separated list of fully qualified Feature implementation classes. */
   private Property<String> features;
 
+  /** Expected SHA-256 of the downloaded GraalVM archive. */
+  private Property<String> imageChecksum;
+
   /** Local Image File to Use. */
   private Property<String> imageFile;
 
@@ -113,6 +146,9 @@ public class GraalvmNativeExtension {
   /** JNI Config File. */
   private Property<String> jniConfigurationFiles;
 
+  /** Mirror URLs to download GraalVM from before GitHub. */
+  private ListProperty<String> mirrors;
+
   /** Class Name with main() method. */
   private Property<String> mainClassName;
 
@@ -137,6 +173,9 @@ public class GraalvmNativeExtension {
   /** Java System Properties. */
   private ListProperty<String> systemProperty;
 
+  /** Maximum size in bytes of the machine-wide GraalVM toolchain cache. */
+  private Property<Long> toolchainCacheMaxSize;
+
   /** Trace Class Initialization. */
   private Property<String> traceClassInitialization;
 
@@ -185,6 +224,18 @@ public class GraalvmNativeExtension {
     this.dockerFile = objects.property(String.class);
     this.enableAllowIncompleteClasspath = objects.property(Boolean.class);
     this.enableNoFallback = objects.property(Boolean.class);
+    this.downloadConnections = objects.property(Integer.class);
+    this.builderMaxHeap = objects.property(String.class);
+    this.builderParallelism = objects.property(Integer.class);
+    this.downloadSegmentSize = objects.property(Long.class);
+    this.toolchainCacheMaxSize = objects.property(Long.class);
+    this.imageChecksum = objects.property(String.class);
+    this.mirrors = objects.listProperty(String.class);
+    this.enableStreamingExtraction = objects.property(Boolean.class);
+    this.enableKeepImageArchive = objects.property(Boolean.class);
+    this.extractionProfile = objects.property(String.class);
+    this.classpathMode = objects.property(String.class);
+    this.enableClassStore = objects.property(Boolean.class);
   }
 
   /**
@@ -205,6 +256,42 @@ public class GraalvmNativeExtension {
     return this.dockerImage.getOrNull();
   }
 
+  /**
+   * Get Maximum heap of the native-image builder, null to size it from the available memory.
+   *
+   * @return {@link String}
+   */
+  public String getBuilderMaxHeap() {
+    return this.builderMaxHeap.getOrNull();
+  }
+
+  /**
+   * Get Number of threads of the native-image builder, null to size it from the available CPUs.
+   *
+   * @return {@link Integer}
+   */
+  public Integer getBuilderParallelism() {
+    return this.builderParallelism.getOrNull();
+  }
+
+  /**
+   * Get Maximum number of parallel download connections.
+   *
+   * @return {@link Integer}
+   */
+  public Integer getDownloadConnections() {
+    return this.downloadConnections.getOrElse(Integer.valueOf(Downloader.DEFAULT_CONNECTIONS));
+  }
+
+  /**
+   * Get Download Range request segment size.
+   *
+   * @return {@link Long}
+   */
+  public Long getDownloadSegmentSize() {
+    return this.downloadSegmentSize.getOrElse(Long.valueOf(Downloader.DEFAULT_SEGMENT_SIZE));
+  }
+
   /**
    * Get Build Options.
    *
@@ -232,6 +319,33 @@ public class GraalvmNativeExtension {
     return this.features.getOrNull();
   }
 
+  /**
+   * Get how the runtime classpath is passed to native-image.
+   *
+   * @return {@link String}
+   */
+  public String getClasspathMode() {
+    return this.classpathMode.getOrElse(GraalvmClasspathArguments.MODE_EXPLODED);
+  }
+
+  /**
+   * Get GraalVM archive extraction profile.
+   *
+   * @return {@link String}
+   */
+  public String getExtractionProfile() {
+    return this.extractionProfile.getOrElse(ExtractionFilter.PROFILE_FULL);
+  }
+
+  /**
+   * Returns the expected SHA-256 of the downloaded GraalVM archive.
+   *
+   * @return {@link String}
+   */
+  public String getImageChecksum() {
+    return this.imageChecksum.getOrNull();
+  }
+
   /**
    * Returns the Image File to use instead of download.
    *
@@ -295,6 +409,15 @@ public class GraalvmNativeExtension {
     return this.mainClassName;
   }
 
+  /**
+   * Get Mirror URLs.
+   *
+   * @return {@link List} {@link String}
+   */
+  public List<String> getMirrors() {
+    return this.mirrors.getOrNull();
+  }
+
   /**
    * Returns Output File name.
    *
@@ -358,6 +481,15 @@ public class GraalvmNativeExtension {
     return this.systemProperty.getOrNull();
   }
 
+  /**
+   * Get Maximum size in bytes of the toolchain cache.
+   *
+   * @return {@link Long}
+   */
+  public Long getToolchainCacheMaxSize() {
+    return this.toolchainCacheMaxSize.getOrElse(Long.valueOf(ToolchainCache.DEFAULT_MAX_SIZE));
+  }
+
   /**
    * Get Trace Class Initialization.
    *
@@ -376,6 +508,33 @@ public class GraalvmNativeExtension {
     return this.enableAllowIncompleteClasspath.getOrElse(Boolean.FALSE);
   }
 
+  /**
+   * Is Enable keeping the GraalVM archive once extracted.
+   *
+   * @return {@link Boolean}
+   */
+  public Boolean isEnableKeepImageArchive() {
+    return this.enableKeepImageArchive.getOrElse(Boolean.TRUE);
+  }
+
+  /**
+   * Is Enable the build-wide store of exploded jars.
+   *
+   * @return {@link Boolean}
+   */
+  public Boolean isEnableClassStore() {
+    return this.enableClassStore.getOrElse(Boolean.FALSE);
+  }
+
+  /**
+   * Is Enable extracting the GraalVM archive while it is downloaded.
+   *
+   * @return {@link Boolean}
+   */
+  public Boolean isEnableStreamingExtraction() {
+    return this.enableStreamingExtraction.getOrElse(Boolean.FALSE);
+  }
+
   /**
    * Enable Add All Charsets.
    *
@@ -556,6 +715,42 @@ public class GraalvmNativeExtension {
     this.dockerFile.set(dockerfile);
   }
 
+  /**
+   * Set Maximum heap of the native-image builder.
+   *
+   * @param maxHeap {@link String}, e.g. "6g"
+   */
+  public void setBuilderMaxHeap(final String maxHeap) {
+    this.builderMaxHeap.set(maxHeap);
+  }
+
+  /**
+   * Set Number of threads of the native-image builder.
+   *
+   * @param parallelism {@link Integer}
+   */
+  public void setBuilderParallelism(final Integer parallelism) {
+    this.builderParallelism.set(parallelism);
+  }
+
+  /**
+   * Set Maximum number of parallel download connections.
+   *
+   * @param connections {@link Integer}
+   */
+  public void setDownloadConnections(final Integer connections) {
+    this.downloadConnections.set(connections);
+  }
+
+  /**
+   * Set Download Range request segment size.
+   *
+   * @param segmentSize {@link Long}
+   */
+  public void setDownloadSegmentSize(final Long segmentSize) {
+    this.downloadSegmentSize.set(segmentSize);
+  }
+
   /**
    * Set Enable AddAllCharsets.
    *
@@ -700,6 +895,33 @@ public class GraalvmNativeExtension {
     this.enableStatic.set(enabled);
   }
 
+  /**
+   * Set Enable keeping the GraalVM archive once extracted.
+   *
+   * @param enabled {@link Boolean}
+   */
+  public void setEnableKeepImageArchive(final Boolean enabled) {
+    this.enableKeepImageArchive.set(enabled);
+  }
+
+  /**
+   * Set Enable the build-wide store of exploded jars.
+   *
+   * @param enabled {@link Boolean}
+   */
+  public void setEnableClassStore(final Boolean enabled) {
+    this.enableClassStore.set(enabled);
+  }
+
+  /**
+   * Set Enable extracting the GraalVM archive while it is downloaded.
+   *
+   * @param enabled {@link Boolean}
+   */
+  public void setEnableStreamingExtraction(final Boolean enabled) {
+    this.enableStreamingExtraction.set(enabled);
+  }
+
   /**
    * Set Enable Verbose.
    *
@@ -718,6 +940,34 @@ public class GraalvmNativeExtension {
     this.features.set(feature);
   }
 
+  /**
+   * Set how the runtime classpath is passed to native-image.
+   *
+   * @param mode {@link GraalvmClasspathArguments#MODE_EXPLODED} or
+   *        {@link GraalvmClasspathArguments#MODE_JARS}
+   */
+  public void setClasspathMode(final String mode) {
+    this.classpathMode.set(mode);
+  }
+
+  /**
+   * Set GraalVM archive extraction profile.
+   *
+   * @param profile {@link String}
+   */
+  public void setExtractionProfile(final String profile) {
+    this.extractionProfile.set(profile);
+  }
+
+  /**
+   * Set expected SHA-256 of the downloaded GraalVM archive.
+   *
+   * @param sha256 {@link String}
+   */
+  public void setImageChecksum(final String sha256) {
+    this.imageChecksum.set(sha256);
+  }
+
   /**
    * Set Image File.
    *
@@ -781,6 +1031,15 @@ public class GraalvmNativeExtension {
     this.mainClassName.set(className);
   }
 
+  /**
+   * Set Mirror URLs.
+   *
+   * @param list {@link List} {@link String}
+   */
+  public void setMirrors(final List<String> list) {
+    this.mirrors.set(list);
+  }
+
   /**
    * Set Output File name.
    *
@@ -844,6 +1103,15 @@ public class GraalvmNativeExtension {
     this.systemProperty.set(list);
   }
 
+  /**
+   * Set Maximum size in bytes of the toolchain cache.
+   *
+   * @param maxSize {@link Long}
+   */
+  public void setToolchainCacheMaxSize(final Long maxSize) {
+    this.toolchainCacheMaxSize.set(maxSize);
+  }
+
   /**
    * Set Trace Class Initialization.
    *
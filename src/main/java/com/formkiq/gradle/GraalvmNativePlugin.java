@@ -14,8 +14,15 @@
  */
 package com.formkiq.gradle;
 
+import com.formkiq.gradle.internal.ClassStore;
+import com.formkiq.gradle.internal.NativeImageExecutor;
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
 import org.gradle.api.Plugin;
 import org.gradle.api.Project;
+import org.gradle.api.Task;
+import org.gradle.api.file.Directory;
 import org.gradle.api.plugins.JavaPlugin;
 import org.gradle.api.provider.Provider;
 import org.gradle.api.tasks.SourceSet;
@@ -25,43 +32,131 @@ import org.gradle.api.tasks.TaskProvider;
 /** GraalVM Plugin to build a native-image from a Java application. */
 public class GraalvmNativePlugin implements Plugin<Project> {
 
+  /** Gradle property holding the maximum size in bytes of the build-wide class store. */
+  public static final String CLASS_STORE_MAX_SIZE = "graalvm.classStoreMaxSize";
+
   @Override
   public void apply(final Project project) {
 
     GraalvmNativeExtension ext = project.getExtensions().create("nativeImage",
         GraalvmNativeExtension.class, project.getObjects());
 
-    Provider<GraalvmBuildService> svc = project.getGradle().getSharedServices().registerIfAbsent(
-        "web", GraalvmBuildService.class, spec -> spec.getMaxParallelUsages().set(1));
+    // the service only takes build-wide values, so configuring a project does not read another
+    // project's state and projects can be configured in parallel. getIsolated() needs Gradle 8.8
+    Directory rootDir = project.getIsolated().getRootProject().getProjectDirectory();
+    Provider<Long> classStoreMaxSize = project.getProviders().gradleProperty(CLASS_STORE_MAX_SIZE)
+        .map(Long::valueOf).orElse(Long.valueOf(ClassStore.DEFAULT_MAX_SIZE));
+    Provider<GraalvmBuildService> svc = project.getGradle().getSharedServices()
+        .registerIfAbsent("web", GraalvmBuildService.class, spec -> {
+          spec.getParameters().getFootprintFile()
+              .set(rootDir.file("build/graalvm-footprints.properties"));
+          spec.getParameters().getClassStoreDirectory().set(rootDir.dir("build/graalvm-classes"));
+          spec.getParameters().getClassStoreMaxSize().set(classStoreMaxSize);
+        });
+
+    // tasks read the extension through providers only, so they are configuration-cache safe and
+    // the extension is only read when their inputs are
+    Provider<NativeImageSpec> nativeImageSpec = project.provider(() -> NativeImageSpec.of(ext));
+    Provider<Boolean> localBuild = project.provider(() -> Boolean.valueOf(
+        ext.getMainClassName().isPresent() && !hasDockerFile(ext) && ext.getDockerImage() == null));
+    Provider<Boolean> explodeClasspath =
+        project.provider(() -> Boolean.valueOf(ext.getMainClassName().isPresent()
+            && !hasDockerFile(ext) && (ext.getDockerImage() != null
+                || !GraalvmClasspathArguments.MODE_JARS.equals(ext.getClasspathMode()))));
+    Provider<Boolean> nativeBuild = project
+        .provider(() -> Boolean.valueOf(ext.getMainClassName().isPresent() || hasDockerFile(ext)));
+
+    // the toolchain does not depend on the project's classes, so it is provisioned while they are
+    // compiled and tested
+    TaskProvider<GraalvmProvisionTask> provision = project.getTasks()
+        .register("graalvmProvisionToolchain", GraalvmProvisionTask.class, task -> {
+          task.setGroup("Graalvm");
+          task.setDescription("Provision the GraalVM toolchain");
+          task.getImageVersion().set(project.provider(ext::getImageVersion));
+          task.getJavaVersion().set(project.provider(ext::getJavaVersion));
+          task.getImageFile().fileProvider(
+              project.provider(ext::getImageFile).map(f -> new File(f).getAbsoluteFile()));
+          task.getImageChecksum().set(project.provider(ext::getImageChecksum));
+          task.getExtractionProfile().set(project.provider(ext::getExtractionProfile));
+          task.getMirrors().set(project.provider(ext::getMirrors));
+          task.getDownloadConnections().set(project.provider(ext::getDownloadConnections));
+          task.getDownloadSegmentSize().set(project.provider(ext::getDownloadSegmentSize));
+          task.getToolchainCacheMaxSize().set(project.provider(ext::getToolchainCacheMaxSize));
+          task.getEnableStreamingExtraction()
+              .set(project.provider(ext::isEnableStreamingExtraction));
+          task.getEnableKeepImageArchive().set(project.provider(ext::isEnableKeepImageArchive));
+          task.getToolchainCacheDirectory().set(new File(project.getGradle().getGradleUserHomeDir(),
+              "caches/graalvm-native-plugin/toolchains"));
+          task.getToolchainFile()
+              .set(project.getLayout().getBuildDirectory().file("graalvm/toolchain"));
+          task.onlyIf(t -> localBuild.get().booleanValue());
+        });
+
+    TaskProvider<GraalvmClasspathTask> classpath =
+        project.getTasks().register("graalvmClasspath", GraalvmClasspathTask.class, task -> {
+          task.setGroup("Graalvm");
+          task.setDescription("Explode the runtime classpath for GraalVM Native Image");
+          task.usesService(svc);
+          task.getBuildService().set(svc);
+          task.getBuildDirectory().set(project.getLayout().getBuildDirectory().dir("graalvm"));
+          task.getClasspathDirectory().set(project.getLayout().getBuildDirectory()
+              .dir("graalvm/" + NativeImageExecutor.GRAALVM_JAVA_MAIN));
+          task.getEnableClassStore().set(project.provider(ext::isEnableClassStore));
+          task.onlyIf(t -> explodeClasspath.get().booleanValue());
+        });
 
     // ✅ Register task immediately so tasks.named(...) always works
     TaskProvider<GraalvmNativeTask> nativeImage =
         project.getTasks().register("graalvmNativeImage", GraalvmNativeTask.class, task -> {
           task.setGroup("Graalvm");
           task.setDescription("Build GraalVM Native Image");
-          task.setExtension(ext);
+          task.getSpec().set(nativeImageSpec);
+          task.getImageVersion().set(provision.flatMap(GraalvmProvisionTask::getImageVersion));
+          task.getJavaVersion().set(provision.flatMap(GraalvmProvisionTask::getJavaVersion));
+          task.getImageArchive().set(provision.flatMap(GraalvmProvisionTask::getImageFile));
+          task.getExtractionProfile()
+              .set(provision.flatMap(GraalvmProvisionTask::getExtractionProfile));
           task.usesService(svc);
+          task.getBuildService().set(svc);
           task.getBuildDirectory().set(project.getLayout().getBuildDirectory().dir("graalvm"));
+          task.getOutputDirectory()
+              .set(project.getLayout().getBuildDirectory().dir("graalvm/output"));
+          task.getReportsDirectory()
+              .set(project.getLayout().getBuildDirectory().dir("graalvm/reports"));
+          task.getWorkingDirectory()
+              .set(project.getLayout().getBuildDirectory().dir("graalvm/tmp"));
+          task.getToolchainFile().set(provision.flatMap(GraalvmProvisionTask::getToolchainFile));
           task.getProjectName().set(project.getName());
+          task.getProjectDirectory().set(project.getLayout().getProjectDirectory());
+
+          // path-bearing options are file inputs so cache keys do not hold the checkout root
+          task.getAdditionalClasspath()
+              .from(project.provider(() -> splitPaths(ext.getAddClasspath())));
+          task.getReflectionConfigFiles()
+              .from(project.provider(() -> splitPaths(ext.getReflectionConfig())));
+          task.getJniConfigFiles()
+              .from(project.provider(() -> splitPaths(ext.getJniConfigurationFiles())));
+          task.getResourceConfigFiles()
+              .from(project.provider(() -> splitPaths(ext.getResourceConfigurationFiles())));
+          task.getDockerFiles().from(project.provider(() -> splitPaths(ext.getDockerFile())));
+          task.dependsOn(provision, classpath);
 
           // ✅ Opt-in: task will only run if configured
-          task.onlyIf(t -> {
-            String dockerFile = ext.getDockerFile();
-            return ext.getMainClassName().isPresent()
-                || (dockerFile != null && !dockerFile.isBlank());
-          });
+          task.onlyIf(t -> nativeBuild.get().booleanValue());
         });
 
     // Wire only if Java plugin is applied
     project.getPlugins().withType(JavaPlugin.class, jp -> {
       SourceSetContainer sourceSets = project.getExtensions().getByType(SourceSetContainer.class);
       SourceSet main = sourceSets.getByName(SourceSet.MAIN_SOURCE_SET_NAME);
+      TaskProvider<Task> jar = project.getTasks().named(JavaPlugin.JAR_TASK_NAME);
+
+      classpath.configure(t -> t.getRuntimeClasspath().from(main.getRuntimeClasspath(), jar));
 
       nativeImage.configure(t -> {
-        t.getSources().from(main.getAllSource());
+        t.getClasses().from(main.getOutput().getClassesDirs());
         t.getRuntimeClasspath().from(main.getRuntimeClasspath());
-        t.dependsOn(project.getTasks().named(JavaPlugin.JAR_TASK_NAME));
-        t.dependsOn(project.getTasks().named(JavaPlugin.TEST_TASK_NAME));
+        t.dependsOn(jar);
       });
     });
 
@@ -73,4 +168,15 @@ public class GraalvmNativePlugin implements Plugin<Project> {
     project.getPlugins().withId("distribution",
         __ -> project.getTasks().named("distZip").configure(t -> t.dependsOn(nativeImage)));
   }
+
+  private static List<String> splitPaths(final String paths) {
+    return paths != null && !paths.isBlank()
+        ? Arrays.stream(paths.split(",")).map(String::trim).toList()
+        : List.of();
+  }
+
+  private static boolean hasDockerFile(final GraalvmNativeExtension ext) {
+    String dockerFile = ext.getDockerFile();
+    return dockerFile != null && !dockerFile.isBlank();
+  }
 }
@@ -16,33 +16,32 @@ package com.formkiq.gradle;
 
 import static com.formkiq.gradle.internal.NativeImageExecutor.GRAALVM_JAVA_MAIN;
 
-import com.formkiq.gradle.internal.ArchiveUtils;
-import com.formkiq.gradle.internal.Downloader;
+import com.formkiq.gradle.internal.BuildScheduler;
+import com.formkiq.gradle.internal.FileUtils;
 import com.formkiq.gradle.internal.NativeImageExecutor;
+import com.formkiq.gradle.internal.NativeImageStatistics;
 import com.formkiq.gradle.services.DefaultDockerService;
 import com.formkiq.gradle.services.DockerService;
 import com.formkiq.gradle.services.DockerfileGenerator;
-import com.formkiq.gradle.services.GraalVmUrlBuilder;
-import com.formkiq.gradle.services.Platform;
-import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.text.MessageFormat;
-import java.util.Comparator;
-import java.util.List;
-import java.util.Optional;
-import java.util.stream.Stream;
 import javax.inject.Inject;
 import org.gradle.api.DefaultTask;
 import org.gradle.api.file.ConfigurableFileCollection;
 import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
 import org.gradle.api.provider.Property;
 import org.gradle.api.resources.ResourceException;
 import org.gradle.api.tasks.CacheableTask;
 import org.gradle.api.tasks.Classpath;
 import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFile;
 import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.LocalState;
+import org.gradle.api.tasks.Nested;
+import org.gradle.api.tasks.Optional;
 import org.gradle.api.tasks.OutputDirectory;
 import org.gradle.api.tasks.PathSensitive;
 import org.gradle.api.tasks.PathSensitivity;
@@ -55,14 +54,16 @@ import org.gradle.process.ExecOperations;
 public abstract class GraalvmNativeTask extends DefaultTask {
 
   /**
-   * Java + resources that influence the native image.
+   * Compiled classes of the project, the task is skipped without them. Classpath normalization
+   * ignores timestamps, so edits that do not change the bytecode, e.g. comments or formatting, keep
+   * the task up to date.
    *
    * @return ConfigurableFileCollection
    */
   @InputFiles
   @SkipWhenEmpty
-  @PathSensitive(PathSensitivity.RELATIVE)
-  public abstract ConfigurableFileCollection getSources();
+  @Classpath
+  public abstract ConfigurableFileCollection getClasses();
 
   /**
    * Runtime classpath (jars/classes/resources) for native-image.
@@ -74,13 +75,107 @@ public abstract class GraalvmNativeTask extends DefaultTask {
   public abstract ConfigurableFileCollection getRuntimeClasspath();
 
   /**
-   * Output Directory binary.
+   * Additional classpaths, resolved against the project directory.
+   *
+   * @return ConfigurableFileCollection
+   */
+  @InputFiles
+  @Classpath
+  public abstract ConfigurableFileCollection getAdditionalClasspath();
+
+  /**
+   * Reflection configuration files, resolved against the project directory.
+   *
+   * @return ConfigurableFileCollection
+   */
+  @InputFiles
+  @PathSensitive(PathSensitivity.RELATIVE)
+  public abstract ConfigurableFileCollection getReflectionConfigFiles();
+
+  /**
+   * JNI configuration files, resolved against the project directory.
+   *
+   * @return ConfigurableFileCollection
+   */
+  @InputFiles
+  @PathSensitive(PathSensitivity.RELATIVE)
+  public abstract ConfigurableFileCollection getJniConfigFiles();
+
+  /**
+   * Resource configuration files, resolved against the project directory.
+   *
+   * @return ConfigurableFileCollection
+   */
+  @InputFiles
+  @PathSensitive(PathSensitivity.RELATIVE)
+  public abstract ConfigurableFileCollection getResourceConfigFiles();
+
+  /**
+   * Dockerfile built instead of running native-image locally.
+   *
+   * @return ConfigurableFileCollection
+   */
+  @InputFiles
+  @PathSensitive(PathSensitivity.RELATIVE)
+  public abstract ConfigurableFileCollection getDockerFiles();
+
+  /**
+   * Project directory the path-bearing options are resolved against when native-image runs.
    *
    * @return DirectoryProperty
    */
-  @OutputDirectory
+  @Internal
+  public abstract DirectoryProperty getProjectDirectory();
+
+  /**
+   * Graalvm build directory, holding the exploded classpath.
+   *
+   * @return DirectoryProperty
+   */
+  @Internal
   public abstract DirectoryProperty getBuildDirectory();
 
+  /**
+   * Output Directory binary, the only output besides the reports, so cache entries hold the binary
+   * and not the toolchain or the exploded classpath.
+   *
+   * @return DirectoryProperty
+   */
+  @OutputDirectory
+  public abstract DirectoryProperty getOutputDirectory();
+
+  /**
+   * Output Directory of the reports native-image writes, e.g. with enablePrintAnalysisCallTree.
+   *
+   * @return DirectoryProperty
+   */
+  @OutputDirectory
+  public abstract DirectoryProperty getReportsDirectory();
+
+  /**
+   * native-image working directory, not cached and deleted on a cache hit.
+   *
+   * @return DirectoryProperty
+   */
+  @LocalState
+  public abstract DirectoryProperty getWorkingDirectory();
+
+  /**
+   * File the {@link GraalvmProvisionTask} wrote the GraalVM base directory to.
+   *
+   * @return RegularFileProperty
+   */
+  @Internal
+  public abstract RegularFileProperty getToolchainFile();
+
+  /**
+   * {@link GraalvmBuildService} owning the {@link BuildScheduler}.
+   *
+   * @return Property
+   */
+  @Internal
+  public abstract Property<GraalvmBuildService> getBuildService();
+
   /**
    * Project name captured at configuration time for configuration-cache safety.
    *
@@ -90,146 +185,131 @@ public abstract class GraalvmNativeTask extends DefaultTask {
   public abstract Property<String> getProjectName();
 
   /**
-   * Extension configuration fingerprint for task caching.
+   * native-image options, each one fingerprinted as a typed input.
    *
-   * @return String
+   * @return Property
    */
-  @Input
-  public String getExtensionFingerprint() {
-    if (this.extension == null) {
-      return "";
-    }
-
-    StringBuilder sb = new StringBuilder();
-    appendFingerprint(sb, "addClasspath", this.extension.getAddClasspath());
-    appendFingerprint(sb, "buildOptions", this.extension.getBuildOptions());
-    appendFingerprint(sb, "dockerFile", this.extension.getDockerFile());
-    appendFingerprint(sb, "dockerImage", this.extension.getDockerImage());
-    appendFingerprint(sb, "features", this.extension.getFeatures());
-    appendFingerprint(sb, "imageFile", this.extension.getImageFile());
-    appendFingerprint(sb, "imageVersion", this.extension.getImageVersion());
-    appendFingerprint(sb, "initializeAtBuildTime", this.extension.getInitializeAtBuildTime());
-    appendFingerprint(sb, "initializeAtRunTime", this.extension.getInitializeAtRunTime());
-    appendFingerprint(sb, "javaVersion", this.extension.getJavaVersion());
-    appendFingerprint(sb, "jniConfigurationFiles", this.extension.getJniConfigurationFiles());
-    appendFingerprint(sb, "mainClassName", this.extension.getMainClassName().getOrNull());
-    appendFingerprint(sb, "outputFileName", this.extension.getOutputFileName());
-    appendFingerprint(sb, "outputImageTag", this.extension.getOutputImageTag());
-    appendFingerprint(sb, "platform", this.extension.getPlatform());
-    appendFingerprint(sb, "reflectionConfig", this.extension.getReflectionConfig());
-    appendFingerprint(sb, "resourceConfigurationFiles",
-        this.extension.getResourceConfigurationFiles());
-    appendFingerprint(sb, "serializationConfig", this.extension.getSerializationConfig());
-    appendFingerprint(sb, "systemProperty", this.extension.getSystemProperty());
-    appendFingerprint(sb, "traceClassInitialization", this.extension.getTraceClassInitialization());
-    appendFingerprint(sb, "enableAddAllCharsets", this.extension.isEnableAddAllCharsets());
-    appendFingerprint(sb, "enableAllowIncompleteClasspath",
-        this.extension.isAllowIncompleteClasspath());
-    appendFingerprint(sb, "enableAllSecurityServices",
-        this.extension.isEnableAllSecurityServices());
-    appendFingerprint(sb, "enableAutoFallback", this.extension.isEnableAutofallback());
-    appendFingerprint(sb, "enableCheckToolchain", this.extension.isEnableCheckToolchain());
-    appendFingerprint(sb, "enableForceFallback", this.extension.isEnableForceFallback());
-    appendFingerprint(sb, "enableHttp", this.extension.isEnableHttp());
-    appendFingerprint(sb, "enableHttps", this.extension.isEnableHttps());
-    appendFingerprint(sb, "enableInstallExitHandlers",
-        this.extension.isEnableInstallExitHandlers());
-    appendFingerprint(sb, "enableNoFallback", this.extension.isEnableFallback());
-    appendFingerprint(sb, "enablePrintAnalysisCallTree",
-        this.extension.isEnablePrintAnalysisCallTree());
-    appendFingerprint(sb, "enableRemoveSaturatedTypeFlows",
-        this.extension.isEnableRemoveSaturatedTypeFlows());
-    appendFingerprint(sb, "enableReportExceptionStackTraces",
-        this.extension.isEnableReportExceptionStackTraces());
-    appendFingerprint(sb, "enableReportUnsupportedElementsAtRuntime",
-        this.extension.isEnableReportUnsupportedElementsAtRuntime());
-    appendFingerprint(sb, "enableShared", this.extension.isEnableShared());
-    appendFingerprint(sb, "enableStatic", this.extension.isEnableStatic());
-    appendFingerprint(sb, "enableVerbose", this.extension.isEnableVerbose());
-
-    return sb.toString();
-  }
+  @Nested
+  public abstract Property<NativeImageSpec> getSpec();
 
   /**
-   * Use {@link ExecOperations} instead of project.exec(...).
+   * GraalVM version of the toolchain.
    *
-   * @return ExecOperations
+   * @return Property
    */
-  @Inject
-  protected abstract ExecOperations getExecOperations();
+  @Input
+  public abstract Property<String> getImageVersion();
 
-  /** {@link ArchiveUtils}, */
-  private final ArchiveUtils archiveUtils = new ArchiveUtils();
+  /**
+   * Java version of the toolchain.
+   *
+   * @return Property
+   */
+  @Input
+  public abstract Property<String> getJavaVersion();
 
-  /** {@link Downloader}. */
-  private final Downloader downloader = new Downloader();
+  /**
+   * Local GraalVM archive the toolchain is extracted from. It is keyed on its contents only, so a
+   * different GraalVM under the same name is a cache miss while the path may differ between
+   * machines.
+   *
+   * @return RegularFileProperty
+   */
+  @InputFile
+  @PathSensitive(PathSensitivity.NONE)
+  @Optional
+  public abstract RegularFileProperty getImageArchive();
 
-  // The extension with your ~20 inputs:
-  private GraalvmNativeExtension extension;
+  /**
+   * GraalVM archive extraction profile of the toolchain.
+   *
+   * @return Property
+   */
+  @Input
+  public abstract Property<String> getExtractionProfile();
 
   /**
-   * Set Extension.
+   * Use {@link ExecOperations} instead of project.exec(...).
    *
-   * @param params {@link GraalvmNativeExtension}
+   * @return ExecOperations
    */
-  public void setExtension(final GraalvmNativeExtension params) {
-    this.extension = params;
-  }
+  @Inject
+  protected abstract ExecOperations getExecOperations();
 
   /** Create GraalVM Image. */
   @TaskAction
   public void createImage() {
 
-    String mainClassName = this.extension.getMainClassName().getOrNull();
-    String dockerFile = this.extension.getDockerFile();
-    boolean hasMainClass = mainClassName != null && !mainClassName.isBlank();
-    boolean hasDockerFile = dockerFile != null && !dockerFile.isBlank();
+    NativeImageSpec spec = getSpec().get();
+    boolean hasDockerFile = spec.hasDockerFile();
 
-    if (hasMainClass || hasDockerFile) {
+    if (spec.hasMainClass() || hasDockerFile) {
       try {
 
-        NativeImageExecutor executor = new NativeImageExecutor(this.extension);
+        // the outputs are not cleaned before a cache miss, stale binaries must not be cached
+        Path outputDir = getOutputDirectory().get().getAsFile().toPath();
+        Path reportsDir = getReportsDirectory().get().getAsFile().toPath();
+        FileUtils.deleteRecursively(outputDir);
+        FileUtils.deleteRecursively(reportsDir);
+        Files.createDirectories(outputDir);
+        Files.createDirectories(reportsDir);
 
         if (hasDockerFile) {
-          executeDockerFile();
-        } else if (this.extension.getDockerImage() != null) {
+          executeDockerFile(spec);
+        } else if (spec.getDockerImage() != null) {
 
-          executeDockerImage(executor);
+          executeDockerImage(spec);
 
         } else {
 
-          Path buildDirGraalvm = getBuildDirectoryAsPath().resolve("graalvm");
-          Path toFile = buildDirGraalvm.resolve(getFilename());
+          Path toolchainFile = getToolchainFile().get().getAsFile().toPath();
+          Path graalvmBaseDir = GraalvmProvisionTask.readToolchain(toolchainFile)
+              .orElseThrow(() -> new ResourceException("GraalVM toolchain not provisioned"));
+
+          Path workingDir = getWorkingDirectory().get().getAsFile().toPath();
+          FileUtils.deleteRecursively(workingDir);
 
-          if (this.extension.getImageFile() == null) {
-            List<String> urls =
-                GraalVmUrlBuilder.builder().withJavaVersion(this.extension.getJavaVersion())
-                    .withVersion(this.extension.getImageVersion()).withPlatform(Platform.detect())
-                    .build();
-            downloader.download(urls, toFile);
+          runScheduledNativeImage(spec, graalvmBaseDir, workingDir);
+          NativeImageExecutor.collectOutputs(workingDir, outputDir, reportsDir);
+        }
 
-          } else {
-            toFile = Path.of(this.extension.getImageFile());
-          }
+      } catch (IOException | InterruptedException e) {
+        throw new ResourceException(e.getMessage(), e);
+      }
+    }
+  }
 
-          archiveUtils.decompress(toFile.toFile(), buildDirGraalvm.toFile());
+  /**
+   * Run native-image once the {@link BuildScheduler} admits the build, then record the footprint
+   * native-image reported so the next build's reservation is learned from it.
+   *
+   * @param spec {@link NativeImageSpec}
+   * @param graalvmBaseDir {@link Path}
+   * @param workingDir {@link Path} native-image working directory
+   * @throws IOException IOException
+   * @throws InterruptedException InterruptedException
+   */
+  private void runScheduledNativeImage(final NativeImageSpec spec, final Path graalvmBaseDir,
+      final Path workingDir) throws IOException, InterruptedException {
 
-          String folder = getFirstSubdirectory(buildDirGraalvm);
-          Path graalvmBaseDir = buildDirGraalvm.resolve(folder);
+    BuildScheduler scheduler = getBuildService().get().getScheduler();
+    long heap = BuildScheduler.parseSize(spec.getBuilderMaxHeap());
+    Integer parallelism = spec.getBuilderParallelism();
 
-          Path path = getBuildDirectoryAsPath().resolve("java/main");
-          if (path.toFile().exists()) {
-            deleteDirectory(path);
-          }
+    try (BuildScheduler.Admission admission = scheduler.admit(getPath(),
+        heap > 0 ? heap * 4 / 3 : -1, parallelism != null ? parallelism.intValue() : -1)) {
 
-          executor.runGuInstallation(getExecOperations(), graalvmBaseDir);
-          executor.runNativeImage(getExecOperations(), getProjectName().get(),
-              getBuildDirectoryAsPath(), graalvmBaseDir.toFile(), path.toFile(),
-              getRuntimeClasspath());
-        }
+      NativeImageExecutor executor = new NativeImageExecutor(spec,
+          new GraalvmResourceArguments(admission.getBuilderMemory(), admission.getCpus(),
+              getImageVersion().get()),
+          getProjectDirectory().get().getAsFile().toPath());
 
-      } catch (IOException | InterruptedException e) {
-        throw new ResourceException(e.getMessage(), e);
+      NativeImageStatistics statistics = executor.runNativeImage(getExecOperations(),
+          getProjectName().get(), getBuildDirectoryAsPath(), graalvmBaseDir.toFile(),
+          workingDir.toFile(), getRuntimeClasspath());
+
+      if (statistics.getPeakRss() > 0 && statistics.getCpuLoad() > 0) {
+        scheduler.record(getPath(), statistics.getPeakRss(), statistics.getCpuLoad());
       }
     }
   }
@@ -238,27 +318,29 @@ public abstract class GraalvmNativeTask extends DefaultTask {
     return getBuildDirectory().get().getAsFile().toPath();
   }
 
-  private void executeDockerFile() throws IOException, InterruptedException {
+  private void executeDockerFile(final NativeImageSpec spec)
+      throws IOException, InterruptedException {
 
     DockerService service = new DefaultDockerService(getLogger());
     if (!service.isDockerRunning()) {
       throw new ResourceException("Docker is not running");
     }
 
-    String dockerfileContent = Files.readString(Path.of(this.extension.getDockerFile()));
-    getLogger().info("Building Dockerfile: " + this.extension.getDockerFile());
+    Path dockerFile =
+        getProjectDirectory().get().getAsFile().toPath().resolve(spec.getDockerFile());
+    String dockerfileContent = Files.readString(dockerFile);
+    getLogger().info("Building Dockerfile: " + dockerFile);
 
-    service.removeDockerImage(this.extension.getOutputImageTag());
+    service.removeDockerImage(spec.getOutputImageTag());
 
     Path buildDir = getBuildDirectoryAsPath();
-    Path contextDir = Path.of(this.extension.getDockerFile()).getParent();
-    contextDir = contextDir != null ? contextDir : Path.of(".");
-    service.buildDockerImage(buildDir, this.extension.getOutputImageTag(), dockerfileContent,
+    Path contextDir = dockerFile.getParent();
+    service.buildDockerImage(buildDir, spec.getOutputImageTag(), dockerfileContent,
         contextDir);
-    service.runDockerImage(buildDir, this.extension.getOutputImageTag());
+    service.runDockerImage(buildDir, spec.getOutputImageTag());
   }
 
-  private void executeDockerImage(NativeImageExecutor executor)
+  private void executeDockerImage(final NativeImageSpec spec)
       throws IOException, InterruptedException {
 
     DockerService service = new DefaultDockerService(getLogger());
@@ -266,68 +348,24 @@ public abstract class GraalvmNativeTask extends DefaultTask {
       throw new ResourceException("Docker is not running");
     }
 
-    executor.buildGraalvmJavaMain(getBuildDirectoryAsPath(), getRuntimeClasspath());
-
-    DockerfileGenerator.Builder builder =
-        DockerfileGenerator.builder().baseImage(this.extension.getDockerImage())
-            .addNativeImageArgs(this.extension).mainClass(this.extension.getMainClassName().get());
+    DockerfileGenerator.Builder builder = DockerfileGenerator.builder()
+        .baseImage(spec.getDockerImage()).addNativeImageArgs(spec)
+        .mainClass(spec.getMainClassName());
 
-    if (this.extension.getOutputFileName() != null) {
-      builder.addNativeImageArg("-H:Name=" + this.extension.getOutputFileName());
+    if (spec.getOutputFileName() != null) {
+      builder.addNativeImageArg("-H:Name=" + spec.getOutputFileName());
     }
 
     String dockerfileContent = builder.build().generateContents(getBuildDirectoryAsPath());
     getLogger().info("Generating Dockerfile");
     getLogger().info("{}", dockerfileContent);
 
-    service.removeDockerImage(this.extension.getOutputImageTag());
+    service.removeDockerImage(spec.getOutputImageTag());
 
     Path buildDir = getBuildDirectoryAsPath();
     Path contextDir = buildDir.resolve(GRAALVM_JAVA_MAIN);
-    service.buildDockerImage(buildDir, this.extension.getOutputImageTag(), dockerfileContent,
+    service.buildDockerImage(buildDir, spec.getOutputImageTag(), dockerfileContent,
         contextDir);
-    service.runDockerImage(buildDir, this.extension.getOutputImageTag());
-  }
-
-  /**
-   * @param directory the path to a real directory on disk (absolute or relative)
-   * @return the name of the first subdirectory (alphabetical order), or empty if none
-   * @throws IllegalArgumentException if dirPath does not exist or is not a directory
-   * @throws IOException if an I/O error occurs while reading the directory
-   */
-  private String getFirstSubdirectory(final Path directory) throws IOException {
-
-    // 1) Make sure the path exists and is a directory
-    if (!Files.exists(directory) || !Files.isDirectory(directory)) {
-      throw new IllegalArgumentException("Not a directory: " + directory);
-    }
-
-    // 2) List entries, filter only directories, sort by name, and pick the first
-    // sort by Path’s natural order (alphabetical)
-    Optional<Path> firstDir;
-    try (Stream<Path> stream = Files.list(directory)) {
-      firstDir = stream.filter(Files::isDirectory).sorted().findFirst();
-    }
-
-    return firstDir.map(Path::getFileName).map(Path::toString).orElseThrow();
-  }
-
-  private void deleteDirectory(Path pathToBeDeleted) throws IOException {
-    try (Stream<Path> walker = Files.walk(pathToBeDeleted)) {
-      walker.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
-    }
-  }
-
-  private String getFilenameExtension() {
-    String os = System.getProperty("os.name").toLowerCase();
-    return os.startsWith("windows") ? "zip" : "tar.gz";
-  }
-
-  private String getFilename() {
-    return MessageFormat.format("graalvm-ce.{0}", getFilenameExtension());
-  }
-
-  private void appendFingerprint(final StringBuilder sb, final String key, final Object value) {
-    sb.append(key).append('=').append(String.valueOf(value)).append('\n');
+    service.runDockerImage(buildDir, spec.getOutputImageTag());
   }
 }
@@ -2,19 +2,41 @@ package com.formkiq.gradle;
 
 import static com.formkiq.gradle.internal.Strings.formatToUnix;
 
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/** {@link Function} to transform {@link NativeImageSpec} to {@link List} {@link String}. */
+public class GraalvmParameterToStrings implements Function<NativeImageSpec, List<String>> {
+
+  /** Directory configuration files are resolved against, null to pass them as configured. */
+  private final Path baseDir;
+
+  /** constructor. */
+  public GraalvmParameterToStrings() {
+    this(null);
+  }
+
+  /**
+   * constructor.
+   *
+   * @param baseDirectory {@link Path} configuration files are resolved against, null to pass them
+   *        as configured
+   */
+  public GraalvmParameterToStrings(final Path baseDirectory) {
+    this.baseDir = baseDirectory;
+  }
 
-/** {@link Function} to transform {@link GraalvmNativeExtension} to {@link List} {@link String}. */
-public class GraalvmParameterToStrings implements Function<GraalvmNativeExtension, List<String>> {
   @Override
-  public List<String> apply(final GraalvmNativeExtension extension) {
+  public List<String> apply(final NativeImageSpec spec) {
 
     List<String> args = new ArrayList<>();
 
-    if (extension.getBuildOptions() != null) {
-      String[] split = extension.getBuildOptions().split("\\s-|^-");
+    if (spec.getBuildOptions() != null) {
+      String[] split = spec.getBuildOptions().split("\\s-|^-");
       for (String s : split) {
         if (!s.isEmpty()) {
           args.add("-" + s.trim());
@@ -22,70 +44,85 @@ public class GraalvmParameterToStrings implements Function<GraalvmNativeExtensio
       }
     }
 
-    addBooleanArgument(args, extension.isEnableFallback(), "--no-fallback");
-    addBooleanArgument(args, extension.isAllowIncompleteClasspath(),
-        "--allow-incomplete-classpath");
-    addBooleanArgument(args, extension.isEnableInstallExitHandlers(), "--install-exit-handlers");
-    addBooleanArgument(args, extension.isEnableHttp(), "--enable-http");
-    addBooleanArgument(args, extension.isEnableHttps(), "--enable-https");
-    addBooleanArgument(args, extension.isEnableVerbose(), "--verbose");
-    addBooleanArgument(args, extension.isEnableAutofallback(), "--auto-fallback");
-    addBooleanArgument(args, extension.isEnableForceFallback(), "--force-fallback");
-    addBooleanArgument(args, extension.isEnableAllSecurityServices(),
-        "--enable-all-security-services");
-    addBooleanArgument(args, extension.isEnableShared(), "--shared");
-    addBooleanArgument(args, extension.isEnableStatic(), "--static");
-
-    addBooleanArgument(args, extension.isEnableAddAllCharsets(), "-H:+AddAllCharsets");
-    addStringListArgument(args, extension.getInitializeAtBuildTime(), "--initialize-at-build-time");
-    addStringListArgument(args, extension.getInitializeAtRunTime(), "--initialize-at-run-time");
-
-    for (String property : extension.getSystemProperty()) {
+    addBooleanArgument(args, spec.isEnableFallback(), "--no-fallback");
+    addBooleanArgument(args, spec.isAllowIncompleteClasspath(), "--allow-incomplete-classpath");
+    addBooleanArgument(args, spec.isEnableInstallExitHandlers(), "--install-exit-handlers");
+    addBooleanArgument(args, spec.isEnableHttp(), "--enable-http");
+    addBooleanArgument(args, spec.isEnableHttps(), "--enable-https");
+    addBooleanArgument(args, spec.isEnableVerbose(), "--verbose");
+    addBooleanArgument(args, spec.isEnableAutofallback(), "--auto-fallback");
+    addBooleanArgument(args, spec.isEnableForceFallback(), "--force-fallback");
+    addBooleanArgument(args, spec.isEnableAllSecurityServices(), "--enable-all-security-services");
+    addBooleanArgument(args, spec.isEnableShared(), "--shared");
+    addBooleanArgument(args, spec.isEnableStatic(), "--static");
+
+    addBooleanArgument(args, spec.isEnableAddAllCharsets(), "-H:+AddAllCharsets");
+    addStringListArgument(args, spec.getInitializeAtBuildTime(), "--initialize-at-build-time");
+    addStringListArgument(args, spec.getInitializeAtRunTime(), "--initialize-at-run-time");
+
+    for (String property : spec.getSystemProperty()) {
       addStringArgument(args, property, "-D" + property);
     }
 
-    String reflectConfig = extension.getReflectionConfig();
+    String reflectConfig = spec.getReflectionConfig();
     if (reflectConfig != null) {
       addStringArgument(args, reflectConfig,
-          "-H:ReflectionConfigurationFiles=" + formatToUnix(reflectConfig));
+          "-H:ReflectionConfigurationFiles=" + formatToUnix(resolvePaths(reflectConfig)));
     }
 
-    String serializationConfig = extension.getSerializationConfig();
+    String serializationConfig = spec.getSerializationConfig();
     if (serializationConfig != null) {
       addStringArgument(args, serializationConfig,
           "-H:SerializationConfigurationResources=" + serializationConfig);
     }
 
-    String jniConfig = extension.getJniConfigurationFiles();
+    String jniConfig = spec.getJniConfigurationFiles();
     if (jniConfig != null) {
-      addStringArgument(args, jniConfig, "-H:JNIConfigurationFiles=" + jniConfig);
+      addStringArgument(args, jniConfig, "-H:JNIConfigurationFiles=" + resolvePaths(jniConfig));
     }
 
-    String resourceConfig = extension.getResourceConfigurationFiles();
+    String resourceConfig = spec.getResourceConfigurationFiles();
     if (resourceConfig != null) {
-      addStringArgument(args, resourceConfig, "-H:ResourceConfigurationFiles=" + resourceConfig);
+      addStringArgument(args, resourceConfig,
+          "-H:ResourceConfigurationFiles=" + resolvePaths(resourceConfig));
     }
 
-    addStringArgument(args, extension.getFeatures(), "--features=" + extension.getFeatures());
+    addStringArgument(args, spec.getFeatures(), "--features=" + spec.getFeatures());
 
-    addStringArgument(args, extension.getTraceClassInitialization(),
-        "--trace-class-initialization=" + extension.getTraceClassInitialization());
-    addBooleanArgument(args, extension.isEnableRemoveSaturatedTypeFlows(),
+    addStringArgument(args, spec.getTraceClassInitialization(),
+        "--trace-class-initialization=" + spec.getTraceClassInitialization());
+    addBooleanArgument(args, spec.isEnableRemoveSaturatedTypeFlows(),
         "-H:+RemoveSaturatedTypeFlows");
-    addBooleanArgument(args, extension.isEnableReportExceptionStackTraces(),
+    addBooleanArgument(args, spec.isEnableReportExceptionStackTraces(),
         "-H:+ReportExceptionStackTraces");
-    addBooleanArgument(args, extension.isEnablePrintAnalysisCallTree(),
-        "-H:+PrintAnalysisCallTree");
-    addBooleanArgument(args, extension.isEnableCheckToolchain(), "-H:-CheckToolchain");
-    addBooleanArgument(args, extension.isEnableReportUnsupportedElementsAtRuntime(),
+    addBooleanArgument(args, spec.isEnablePrintAnalysisCallTree(), "-H:+PrintAnalysisCallTree");
+    addBooleanArgument(args, spec.isEnableCheckToolchain(), "-H:-CheckToolchain");
+    addBooleanArgument(args, spec.isEnableReportUnsupportedElementsAtRuntime(),
         "-H:+ReportUnsupportedElementsAtRuntime");
 
     return args;
   }
 
-  private void addBooleanArgument(final List<String> args, final Boolean bool,
+  /**
+   * Resolve comma separated paths against the base directory, so only the command line holds
+   * absolute paths and not the task inputs.
+   *
+   * @param paths {@link String}
+   * @return {@link String}
+   */
+  private String resolvePaths(final String paths) {
+    if (this.baseDir == null) {
+      return paths;
+    }
+
+    return Arrays.stream(paths.split(",")).map(String::trim)
+        .map(p -> this.baseDir.resolve(p).toAbsolutePath().toString())
+        .collect(Collectors.joining(","));
+  }
+
+  private void addBooleanArgument(final List<String> args, final boolean bool,
       final String argument) {
-    if (Boolean.TRUE.equals(bool)) {
+    if (bool) {
       args.add(argument);
     }
   }
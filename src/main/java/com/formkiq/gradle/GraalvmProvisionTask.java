@@ -0,0 +1,205 @@
+/**
+ * Copyright [2020] FormKiQ Inc. Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the License
+ * at
+ *
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.formkiq.gradle;
+
+import com.formkiq.gradle.services.ProvisionToolchainWorkAction;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import javax.inject.Inject;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.work.DisableCachingByDefault;
+import org.gradle.workers.WorkerExecutor;
+
+/**
+ * Provisions the GraalVM toolchain into the machine-wide toolchain cache and writes its base
+ * directory to {@link #getToolchainFile()}. It does not depend on the project's classes, so it runs
+ * while they are compiled and tested.
+ */
+@DisableCachingByDefault(because = "The toolchain is cached in the machine-wide toolchain cache")
+public abstract class GraalvmProvisionTask extends DefaultTask {
+
+  /** constructor. */
+  public GraalvmProvisionTask() {
+    // the toolchain may have been evicted from the machine-wide cache
+    getOutputs().upToDateWhen(t -> readToolchain(getToolchainFile().get().getAsFile().toPath())
+        .map(Files::isDirectory).orElse(Boolean.FALSE).booleanValue());
+  }
+
+  /**
+   * Read the GraalVM base directory written by {@link GraalvmProvisionTask}.
+   *
+   * @param toolchainFile {@link Path}
+   * @return {@link Optional} {@link Path}
+   */
+  public static Optional<Path> readToolchain(final Path toolchainFile) {
+    try {
+      return Files.isRegularFile(toolchainFile)
+          ? Optional.of(Path.of(Files.readString(toolchainFile, StandardCharsets.UTF_8).trim()))
+          : Optional.empty();
+    } catch (IOException e) {
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * Get {@link WorkerExecutor}.
+   *
+   * @return {@link WorkerExecutor}
+   */
+  @Inject
+  protected abstract WorkerExecutor getWorkerExecutor();
+
+  /**
+   * Machine-wide GraalVM toolchain cache directory.
+   *
+   * @return DirectoryProperty
+   */
+  @Internal
+  public abstract DirectoryProperty getToolchainCacheDirectory();
+
+  /**
+   * File the GraalVM base directory is written to.
+   *
+   * @return RegularFileProperty
+   */
+  @OutputFile
+  public abstract RegularFileProperty getToolchainFile();
+
+  /**
+   * GraalVM version to download.
+   *
+   * @return Property
+   */
+  @Input
+  public abstract Property<String> getImageVersion();
+
+  /**
+   * Java version to download.
+   *
+   * @return Property
+   */
+  @Input
+  public abstract Property<String> getJavaVersion();
+
+  /**
+   * Local GraalVM archive to use instead of the download. It is keyed on its contents only, so
+   * replacing the archive provisions the toolchain again.
+   *
+   * @return RegularFileProperty
+   */
+  @InputFile
+  @PathSensitive(PathSensitivity.NONE)
+  @org.gradle.api.tasks.Optional
+  public abstract RegularFileProperty getImageFile();
+
+  /**
+   * Expected SHA-256 of the GraalVM archive.
+   *
+   * @return Property
+   */
+  @Input
+  @org.gradle.api.tasks.Optional
+  public abstract Property<String> getImageChecksum();
+
+  /**
+   * GraalVM archive extraction profile.
+   *
+   * @return Property
+   */
+  @Input
+  public abstract Property<String> getExtractionProfile();
+
+  /**
+   * Mirror URLs to download GraalVM from before GitHub.
+   *
+   * @return ListProperty
+   */
+  @Internal
+  public abstract ListProperty<String> getMirrors();
+
+  /**
+   * Maximum number of parallel download connections.
+   *
+   * @return Property
+   */
+  @Internal
+  public abstract Property<Integer> getDownloadConnections();
+
+  /**
+   * Download Range request segment size.
+   *
+   * @return Property
+   */
+  @Internal
+  public abstract Property<Long> getDownloadSegmentSize();
+
+  /**
+   * Maximum size in bytes of the toolchain cache.
+   *
+   * @return Property
+   */
+  @Internal
+  public abstract Property<Long> getToolchainCacheMaxSize();
+
+  /**
+   * Whether the GraalVM archive is extracted while it is downloaded.
+   *
+   * @return Property
+   */
+  @Internal
+  public abstract Property<Boolean> getEnableStreamingExtraction();
+
+  /**
+   * Whether the GraalVM archive is kept in the toolchain cache once extracted.
+   *
+   * @return Property
+   */
+  @Internal
+  public abstract Property<Boolean> getEnableKeepImageArchive();
+
+  /** Provision the toolchain, without blocking the project's other tasks. */
+  @TaskAction
+  public void provision() {
+    getWorkerExecutor().noIsolation().submit(ProvisionToolchainWorkAction.class, params -> {
+      params.getImageVersion().set(getImageVersion());
+      params.getJavaVersion().set(getJavaVersion());
+      params.getImageFile().set(getImageFile());
+      params.getImageChecksum().set(getImageChecksum());
+      params.getExtractionProfile().set(getExtractionProfile());
+      params.getMirrors().set(getMirrors());
+      params.getDownloadConnections().set(getDownloadConnections());
+      params.getDownloadSegmentSize().set(getDownloadSegmentSize());
+      params.getToolchainCacheMaxSize().set(getToolchainCacheMaxSize());
+      params.getEnableStreamingExtraction().set(getEnableStreamingExtraction());
+      params.getEnableKeepImageArchive().set(getEnableKeepImageArchive());
+      params.getToolchainCacheDirectory().set(getToolchainCacheDirectory());
+      params.getToolchainFile().set(getToolchainFile());
+    });
+  }
+}
@@ -0,0 +1,141 @@
+/**
+ * Copyright [2020] FormKiQ Inc. Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the License
+ * at
+ *
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.formkiq.gradle;
+
+import com.formkiq.gradle.internal.BuildScheduler;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * {@link Function} sizing the native-image builder heap (-J-Xmx) from the
+ * {@link BuildScheduler.Admission#getBuilderMemory() builder memory} and thread count
+ * (--parallelism) from the CPUs the {@link BuildScheduler} granted the build. Three quarters of
+ * the builder memory go to the heap, the rest is left for the builder's off-heap memory.
+ * --parallelism is only added by default for GraalVM releases that support it, not for the legacy
+ * vm-22.x and older ones. Values set with builderMaxHeap / builderParallelism or passed in
+ * buildOptions are kept.
+ */
+public class GraalvmResourceArguments implements Function<NativeImageSpec, List<String>> {
+
+  /** Minimum builder heap (1 GB). */
+  static final long MIN_HEAP = 1024L * 1024 * 1024;
+
+  private static final Logger LOGGER = Logger.getLogger(GraalvmResourceArguments.class.getName());
+
+  /** Bytes per MB. */
+  private static final long MB = 1024L * 1024;
+
+  /** Heap option. */
+  private static final String XMX = "-J-Xmx";
+
+  /** Parallelism option. */
+  private static final String PARALLELISM = "--parallelism";
+
+  /** Memory in bytes the heap is sized from. */
+  private final long memory;
+
+  /** CPUs granted to the build. */
+  private final int cpus;
+
+  /** Whether native-image supports --parallelism. */
+  private final boolean parallelismSupported;
+
+  /**
+   * constructor.
+   *
+   * @param builderMemory memory in bytes the heap is sized from
+   * @param grantedCpus CPUs granted to the build
+   * @param imageVersion GraalVM version
+   */
+  public GraalvmResourceArguments(final long builderMemory, final int grantedCpus,
+      final String imageVersion) {
+    this.memory = builderMemory;
+    this.cpus = Math.max(grantedCpus, 1);
+    this.parallelismSupported = supportsParallelism(imageVersion);
+  }
+
+  /**
+   * Whether a GraalVM release's native-image supports --parallelism, added with GraalVM for JDK 17
+   * / 20. Legacy releases are numbered 19.x to 22.x with a non-zero minor version or four parts,
+   * e.g. "22.3.1" or "21.0.0.2", GraalVM for JDK releases follow the JDK, e.g. "17.0.8" or
+   * "24.0.1".
+   *
+   * @param imageVersion GraalVM version
+   * @return boolean, false if the version cannot be parsed
+   */
+  static boolean supportsParallelism(final String imageVersion) {
+
+    String[] parts = imageVersion != null ? imageVersion.trim().split("\\.") : new String[0];
+    final int maxParts = 3;
+    final int firstJdkRelease = 23;
+    final int jdk17 = 17;
+    final int jdk20 = 20;
+
+    try {
+      int major = Integer.parseInt(parts[0]);
+      int minor = parts.length > 1 ? Integer.parseInt(parts[1]) : 0;
+      int patch = parts.length > 2 ? Integer.parseInt(parts[2]) : 0;
+
+      if (parts.length > maxParts) {
+        return false;
+      }
+
+      if (major >= firstJdkRelease) {
+        return true;
+      }
+
+      // vm-20.0.0 is legacy, GraalVM for JDK 20 starts at 20.0.1
+      return minor == 0 && (major == jdk17 || major > jdk20 || (major == jdk20 && patch > 0));
+
+    } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+      return false;
+    }
+  }
+
+  @Override
+  public List<String> apply(final NativeImageSpec spec) {
+
+    List<String> args = new ArrayList<>();
+    String buildOptions = spec.getBuildOptions() != null ? spec.getBuildOptions() : "";
+
+    String heap = spec.getBuilderMaxHeap();
+    if (heap == null && !buildOptions.contains(XMX)) {
+      heap = Math.max(this.memory * 3 / 4, MIN_HEAP) / MB + "m";
+    }
+
+    if (heap != null) {
+      args.add(XMX + heap);
+    }
+
+    Integer parallelism = spec.getBuilderParallelism();
+    if (parallelism == null && this.parallelismSupported && !buildOptions.contains(PARALLELISM)) {
+      parallelism = Integer.valueOf(this.cpus);
+    }
+
+    if (parallelism != null) {
+      args.add(PARALLELISM + "=" + parallelism);
+    }
+
+    LOGGER.log(Level.INFO, "native-image builder heap {0}, parallelism {1} ({2} MB builder memory)",
+        new Object[] {heap != null ? heap : "from buildOptions",
+            parallelism != null ? parallelism : "from buildOptions",
+            Long.valueOf(this.memory / MB)});
+
+    return args;
+  }
+}
@@ -0,0 +1,561 @@
+/**
+ * Copyright [2020] FormKiQ Inc. Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the License
+ * at
+ *
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.formkiq.gradle;
+
+import java.io.Serializable;
+import java.util.List;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.Optional;
+
+/**
+ * Immutable snapshot of the {@link GraalvmNativeExtension} options native-image is run with. It is
+ * the {@link GraalvmNativeTask}'s nested input, so every option is fingerprinted on its own and the
+ * task does not hold the extension, which keeps it configuration-cache safe. Path-bearing options
+ * are {@link Internal}, the task declares them as file inputs.
+ */
+public final class NativeImageSpec implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  /** Additional Classpaths comma separated. */
+  private final String addClasspath;
+  /** Build Options. */
+  private final String buildOptions;
+  /** Maximum heap of the native-image builder. */
+  private final String builderMaxHeap;
+  /** Number of threads of the native-image builder. */
+  private final Integer builderParallelism;
+  /** How the runtime classpath is passed to native-image. */
+  private final String classpathMode;
+  /** Dockerfile. */
+  private final String dockerFile;
+  /** Graalvm Docker Image. */
+  private final String dockerImage;
+  /** Enable Add All Charsets. */
+  private final boolean enableAddAllCharsets;
+  /** Allow image building with an incomplete class path. */
+  private final boolean enableAllowIncompleteClasspath;
+  /** Add all security service classes to the generated image. */
+  private final boolean enableAllSecurityServices;
+  /** Build stand-alone image if possible. */
+  private final boolean enableAutoFallback;
+  /** Check if native-toolchain is known to work with native-image. */
+  private final boolean enableCheckToolchain;
+  /** Force building of fallback image. */
+  private final boolean enableForceFallback;
+  /** Enable http support in the generated image. */
+  private final boolean enableHttp;
+  /** Enable https support in the generated image. */
+  private final boolean enableHttps;
+  /** Provide java.lang.Terminator exit handlers for executable images. */
+  private final boolean enableInstallExitHandlers;
+  /** Build stand-alone image or report failure. */
+  private final boolean enableNoFallback;
+  /** Print analysis call tree. */
+  private final boolean enablePrintAnalysisCallTree;
+  /** Enable the type flow saturation analysis performance optimization. */
+  private final boolean enableRemoveSaturatedTypeFlows;
+  /** Show exception stack traces for exceptions during image building. */
+  private final boolean enableReportExceptionStackTraces;
+  /** Report usage of unsupported methods and fields at run time. */
+  private final boolean enableReportUnsupportedElementsAtRuntime;
+  /** Build shared library. */
+  private final boolean enableShared;
+  /** Build statically linked executable. */
+  private final boolean enableStatic;
+  /** Enable verbose output. */
+  private final boolean enableVerbose;
+  /** Feature implementation classes comma separated. */
+  private final String features;
+  /** Packages and classes that are initialized during image generation. */
+  private final List<String> initializeAtBuildTime;
+  /** Packages and classes that are initialized at runtime. */
+  private final List<String> initializeAtRunTime;
+  /** JNI Config File. */
+  private final String jniConfigurationFiles;
+  /** Class Name with main() method. */
+  private final String mainClassName;
+  /** Output File Name. */
+  private final String outputFileName;
+  /** Output Image Tag. */
+  private final String outputImageTag;
+  /** Docker Platform. */
+  private final String platform;
+  /** Reflection Config File. */
+  private final String reflectionConfig;
+  /** Resource Configuration Files. */
+  private final String resourceConfigurationFiles;
+  /** Serialization Config Resources. */
+  private final String serializationConfig;
+  /** Java System Properties. */
+  private final List<String> systemProperty;
+  /** Trace Class Initialization. */
+  private final String traceClassInitialization;
+
+  private NativeImageSpec(final GraalvmNativeExtension ext) {
+    this.addClasspath = ext.getAddClasspath();
+    this.buildOptions = ext.getBuildOptions();
+    this.builderMaxHeap = ext.getBuilderMaxHeap();
+    this.builderParallelism = ext.getBuilderParallelism();
+    this.classpathMode = ext.getClasspathMode();
+    this.dockerFile = ext.getDockerFile();
+    this.dockerImage = ext.getDockerImage();
+    this.enableAddAllCharsets = ext.isEnableAddAllCharsets().booleanValue();
+    this.enableAllowIncompleteClasspath = ext.isAllowIncompleteClasspath().booleanValue();
+    this.enableAllSecurityServices = ext.isEnableAllSecurityServices().booleanValue();
+    this.enableAutoFallback = ext.isEnableAutofallback().booleanValue();
+    this.enableCheckToolchain = ext.isEnableCheckToolchain().booleanValue();
+    this.enableForceFallback = ext.isEnableForceFallback().booleanValue();
+    this.enableHttp = ext.isEnableHttp().booleanValue();
+    this.enableHttps = ext.isEnableHttps().booleanValue();
+    this.enableInstallExitHandlers = ext.isEnableInstallExitHandlers().booleanValue();
+    this.enableNoFallback = ext.isEnableFallback().booleanValue();
+    this.enablePrintAnalysisCallTree = ext.isEnablePrintAnalysisCallTree().booleanValue();
+    this.enableRemoveSaturatedTypeFlows = ext.isEnableRemoveSaturatedTypeFlows().booleanValue();
+    this.enableReportExceptionStackTraces =
+        ext.isEnableReportExceptionStackTraces().booleanValue();
+    this.enableReportUnsupportedElementsAtRuntime =
+        ext.isEnableReportUnsupportedElementsAtRuntime().booleanValue();
+    this.enableShared = ext.isEnableShared().booleanValue();
+    this.enableStatic = ext.isEnableStatic().booleanValue();
+    this.enableVerbose = ext.isEnableVerbose().booleanValue();
+    this.features = ext.getFeatures();
+    this.initializeAtBuildTime = copyOf(ext.getInitializeAtBuildTime());
+    this.initializeAtRunTime = copyOf(ext.getInitializeAtRunTime());
+    this.jniConfigurationFiles = ext.getJniConfigurationFiles();
+    this.mainClassName = ext.getMainClassName().getOrNull();
+    this.outputFileName = ext.getOutputFileName();
+    this.outputImageTag = ext.getOutputImageTag();
+    this.platform = ext.getPlatform();
+    this.reflectionConfig = ext.getReflectionConfig();
+    this.resourceConfigurationFiles = ext.getResourceConfigurationFiles();
+    this.serializationConfig = ext.getSerializationConfig();
+    this.systemProperty = copyOf(ext.getSystemProperty());
+    this.traceClassInitialization = ext.getTraceClassInitialization();
+  }
+
+  /**
+   * Snapshot the options of a {@link GraalvmNativeExtension}.
+   *
+   * @param extension {@link GraalvmNativeExtension}
+   * @return {@link NativeImageSpec}
+   */
+  public static NativeImageSpec of(final GraalvmNativeExtension extension) {
+    return new NativeImageSpec(extension);
+  }
+
+  private static List<String> copyOf(final List<String> list) {
+    return list != null ? List.copyOf(list) : List.of();
+  }
+
+  /**
+   * Returns additional classpaths.
+   *
+   * @return {@link String}
+   */
+  @Internal
+  public String getAddClasspath() {
+    return this.addClasspath;
+  }
+
+  /**
+   * Get Build Options.
+   *
+   * @return {@link String}
+   */
+  @Input
+  @Optional
+  public String getBuildOptions() {
+    return this.buildOptions;
+  }
+
+  /**
+   * Get Maximum heap of the native-image builder.
+   *
+   * @return {@link String}
+   */
+  @Input
+  @Optional
+  public String getBuilderMaxHeap() {
+    return this.builderMaxHeap;
+  }
+
+  /**
+   * Get Number of threads of the native-image builder.
+   *
+   * @return {@link Integer}
+   */
+  @Input
+  @Optional
+  public Integer getBuilderParallelism() {
+    return this.builderParallelism;
+  }
+
+  /**
+   * Get how the runtime classpath is passed to native-image.
+   *
+   * @return {@link String}
+   */
+  @Input
+  public String getClasspathMode() {
+    return this.classpathMode;
+  }
+
+  /**
+   * Get Dockerfile.
+   *
+   * @return {@link String}
+   */
+  @Internal
+  public String getDockerFile() {
+    return this.dockerFile;
+  }
+
+  /**
+   * Get Graalvm Docker Image.
+   *
+   * @return {@link String}
+   */
+  @Input
+  @Optional
+  public String getDockerImage() {
+    return this.dockerImage;
+  }
+
+  /**
+   * Returns Features.
+   *
+   * @return {@link String}
+   */
+  @Input
+  @Optional
+  public String getFeatures() {
+    return this.features;
+  }
+
+  /**
+   * Get Initialize-At-Build-Time.
+   *
+   * @return {@link List} {@link String}
+   */
+  @Input
+  public List<String> getInitializeAtBuildTime() {
+    return this.initializeAtBuildTime;
+  }
+
+  /**
+   * Get Initialize-At-Run-Time.
+   *
+   * @return {@link List} {@link String}
+   */
+  @Input
+  public List<String> getInitializeAtRunTime() {
+    return this.initializeAtRunTime;
+  }
+
+  /**
+   * Get JNI Configuration Files.
+   *
+   * @return {@link String}
+   */
+  @Internal
+  public String getJniConfigurationFiles() {
+    return this.jniConfigurationFiles;
+  }
+
+  /**
+   * Get Main Class Name.
+   *
+   * @return {@link String}
+   */
+  @Input
+  @Optional
+  public String getMainClassName() {
+    return this.mainClassName;
+  }
+
+  /**
+   * Returns Output File name.
+   *
+   * @return {@link String}
+   */
+  @Input
+  @Optional
+  public String getOutputFileName() {
+    return this.outputFileName;
+  }
+
+  /**
+   * Returns Output Image Tag.
+   *
+   * @return {@link String}
+   */
+  @Input
+  public String getOutputImageTag() {
+    return this.outputImageTag;
+  }
+
+  /**
+   * Returns Docker Platform.
+   *
+   * @return {@link String}
+   */
+  @Input
+  @Optional
+  public String getPlatform() {
+    return this.platform;
+  }
+
+  /**
+   * Get Reflection Config File.
+   *
+   * @return {@link String}
+   */
+  @Internal
+  public String getReflectionConfig() {
+    return this.reflectionConfig;
+  }
+
+  /**
+   * Get Resource Configuration Files.
+   *
+   * @return {@link String}
+   */
+  @Internal
+  public String getResourceConfigurationFiles() {
+    return this.resourceConfigurationFiles;
+  }
+
+  /**
+   * Get Serialization Config Resources.
+   *
+   * @return {@link String}
+   */
+  @Input
+  @Optional
+  public String getSerializationConfig() {
+    return this.serializationConfig;
+  }
+
+  /**
+   * Get System Property.
+   *
+   * @return {@link List} {@link String}
+   */
+  @Input
+  public List<String> getSystemProperty() {
+    return this.systemProperty;
+  }
+
+  /**
+   * Get Trace Class Initialization.
+   *
+   * @return {@link String}
+   */
+  @Input
+  @Optional
+  public String getTraceClassInitialization() {
+    return this.traceClassInitialization;
+  }
+
+  /**
+   * Is Enable Allow Incomplete Classpath.
+   *
+   * @return boolean
+   */
+  @Input
+  public boolean isAllowIncompleteClasspath() {
+    return this.enableAllowIncompleteClasspath;
+  }
+
+  /**
+   * Enable Add All Charsets.
+   *
+   * @return boolean
+   */
+  @Input
+  public boolean isEnableAddAllCharsets() {
+    return this.enableAddAllCharsets;
+  }
+
+  /**
+   * Is Enable All Security Services.
+   *
+   * @return boolean
+   */
+  @Input
+  public boolean isEnableAllSecurityServices() {
+    return this.enableAllSecurityServices;
+  }
+
+  /**
+   * Is Auto Fall Back.
+   *
+   * @return boolean
+   */
+  @Input
+  public boolean isEnableAutofallback() {
+    return this.enableAutoFallback;
+  }
+
+  /**
+   * Is Check Tool chain.
+   *
+   * @return boolean
+   */
+  @Input
+  public boolean isEnableCheckToolchain() {
+    return this.enableCheckToolchain;
+  }
+
+  /**
+   * Is No Fallback.
+   *
+   * @return boolean
+   */
+  @Input
+  public boolean isEnableFallback() {
+    return this.enableNoFallback;
+  }
+
+  /**
+   * Is Force Fallback.
+   *
+   * @return boolean
+   */
+  @Input
+  public boolean isEnableForceFallback() {
+    return this.enableForceFallback;
+  }
+
+  /**
+   * Is Enable Http.
+   *
+   * @return boolean
+   */
+  @Input
+  public boolean isEnableHttp() {
+    return this.enableHttp;
+  }
+
+  /**
+   * Is Enable Https.
+   *
+   * @return boolean
+   */
+  @Input
+  public boolean isEnableHttps() {
+    return this.enableHttps;
+  }
+
+  /**
+   * Is Install-Exit-Handlers.
+   *
+   * @return boolean
+   */
+  @Input
+  public boolean isEnableInstallExitHandlers() {
+    return this.enableInstallExitHandlers;
+  }
+
+  /**
+   * Is Print Analysis Call Tree.
+   *
+   * @return boolean
+   */
+  @Input
+  public boolean isEnablePrintAnalysisCallTree() {
+    return this.enablePrintAnalysisCallTree;
+  }
+
+  /**
+   * Is Remove Saturated Type Flows.
+   *
+   * @return boolean
+   */
+  @Input
+  public boolean isEnableRemoveSaturatedTypeFlows() {
+    return this.enableRemoveSaturatedTypeFlows;
+  }
+
+  /**
+   * Is Report Exception Stack Traces.
+   *
+   * @return boolean
+   */
+  @Input
+  public boolean isEnableReportExceptionStackTraces() {
+    return this.enableReportExceptionStackTraces;
+  }
+
+  /**
+   * Is Report Unsupported Elements At Runtime.
+   *
+   * @return boolean
+   */
+  @Input
+  public boolean isEnableReportUnsupportedElementsAtRuntime() {
+    return this.enableReportUnsupportedElementsAtRuntime;
+  }
+
+  /**
+   * Is Enable Shared.
+   *
+   * @return boolean
+   */
+  @Input
+  public boolean isEnableShared() {
+    return this.enableShared;
+  }
+
+  /**
+   * Is Enable Static.
+   *
+   * @return boolean
+   */
+  @Input
+  public boolean isEnableStatic() {
+    return this.enableStatic;
+  }
+
+  /**
+   * Is Verbose.
+   *
+   * @return boolean
+   */
+  @Input
+  public boolean isEnableVerbose() {
+    return this.enableVerbose;
+  }
+
+  /**
+   * Whether a Dockerfile is built instead of running native-image.
+   *
+   * @return boolean
+   */
+  public boolean hasDockerFile() {
+    return this.dockerFile != null && !this.dockerFile.isBlank();
+  }
+
+  /**
+   * Whether a main class is configured.
+   *
+   * @return boolean
+   */
+  public boolean hasMainClass() {
+    return this.mainClassName != null && !this.mainClassName.isBlank();
+  }
+}
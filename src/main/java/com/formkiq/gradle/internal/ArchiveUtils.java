@@ -15,29 +15,44 @@
 package com.formkiq.gradle.internal;
 
 import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.nio.file.FileAlreadyExistsException;
-import java.nio.file.FileSystem;
-import java.nio.file.FileSystems;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import org.apache.commons.compress.archivers.ArchiveEntry;
-import org.apache.commons.compress.archivers.ArchiveInputStream;
-import org.apache.commons.compress.archivers.jar.JarArchiveInputStream;
-import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import java.nio.file.StandardOpenOption;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
-import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
 import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
 
 /** File Archive Utilities. */
 public class ArchiveUtils {
 
-  /** Buffer Size. */
-  private static final int BUFFER_SIZE = 1024;
+  /** Maximum number of threads extracting entries in parallel. */
+  private static final int MAX_EXTRACTORS = 8;
+
+  /** Number of threads extracting entries in parallel. */
+  private static final int EXTRACTOR_THREADS =
+      Math.min(Runtime.getRuntime().availableProcessors(), MAX_EXTRACTORS);
+
+  /** Pool archive entries are extracted on in parallel. */
+  private static final ForkJoinPool EXTRACTORS = new ForkJoinPool(EXTRACTOR_THREADS);
+
+  /** Direct buffers shared by all extractions. */
+  private static final BufferPool BUFFERS = new BufferPool(BufferPool.DEFAULT_BUFFER_SIZE,
+      2 * Runtime.getRuntime().availableProcessors());
 
   /** constructor. */
   public ArchiveUtils() {}
@@ -50,10 +65,25 @@ public class ArchiveUtils {
    * @throws IOException IOException
    */
   public void decompress(final File archive, final File outputDir) throws IOException {
+    decompress(archive, outputDir, ExtractionFilter.full());
+  }
+
+  /**
+   * Decompress the entries of .tar.gz or .zip files selected by a filter.
+   *
+   * @param archive {@link File}
+   * @param outputDir {@link File}
+   * @param filter {@link ExtractionFilter}
+   * @throws IOException IOException
+   */
+  public void decompress(final File archive, final File outputDir, final ExtractionFilter filter)
+      throws IOException {
     if (archive.toString().endsWith(".zip")) {
-      decompressZip(archive, outputDir);
+      decompressZipFile(archive, outputDir, filter, null);
     } else {
-      decompressTarGZip(archive, outputDir);
+      try (InputStream in = new FileInputStream(archive)) {
+        decompressTarGZip(in, outputDir, filter);
+      }
     }
   }
 
@@ -65,10 +95,7 @@ public class ArchiveUtils {
    * @throws IOException IOException
    */
   public void decompressZip(final File archive, final File outputDir) throws IOException {
-    try (ZipArchiveInputStream in =
-        new ZipArchiveInputStream(new BufferedInputStream(new FileInputStream(archive)))) {
-      decompress(in, outputDir);
-    }
+    decompressZipFile(archive, outputDir, ExtractionFilter.full(), null);
   }
 
   /**
@@ -79,12 +106,39 @@ public class ArchiveUtils {
    * @throws IOException IOException
    */
   public void decompressTarGZip(final File archive, final File outputDir) throws IOException {
-    try (TarArchiveInputStream in = new TarArchiveInputStream(new GzipCompressorInputStream(
-        new BufferedInputStream(new FileInputStream(archive)), true))) {
-      decompress(in, outputDir);
+    try (InputStream in = new FileInputStream(archive)) {
+      decompressTarGZip(in, outputDir);
     }
   }
 
+  /**
+   * Decompress a .tar.gz stream, e.g. while it is downloaded. The stream is not closed.
+   *
+   * @param stream {@link InputStream}
+   * @param outputDir {@link File}
+   * @throws IOException IOException
+   */
+  public void decompressTarGZip(final InputStream stream, final File outputDir)
+      throws IOException {
+    decompressTarGZip(stream, outputDir, ExtractionFilter.full());
+  }
+
+  /**
+   * Decompress the entries of a .tar.gz stream selected by a filter. The stream is not closed.
+   *
+   * @param stream {@link InputStream}
+   * @param outputDir {@link File}
+   * @param filter {@link ExtractionFilter}
+   * @throws IOException IOException
+   */
+  public void decompressTarGZip(final InputStream stream, final File outputDir,
+      final ExtractionFilter filter) throws IOException {
+    TarArchiveInputStream in = new TarArchiveInputStream(
+        new GzipCompressorInputStream(new BufferedInputStream(stream), true));
+    new TarExtractor(EXTRACTOR_THREADS, TarExtractor.DEFAULT_MAX_BUFFERED, BUFFERS).extract(in,
+        Path.of(outputDir.getCanonicalPath()), filter);
+  }
+
   /**
    * Decompress .jar files.
    *
@@ -93,93 +147,143 @@ public class ArchiveUtils {
    * @throws IOException IOException
    */
   public void decompressJar(final File archive, final File outputDir) throws IOException {
-    try (JarArchiveInputStream in =
-        new JarArchiveInputStream(new BufferedInputStream(new FileInputStream(archive)))) {
-      decompress(in, outputDir);
-    }
+    decompressZipFile(archive, outputDir, ExtractionFilter.full(), null);
+  }
+
+  /**
+   * Decompress the named entries of .zip / .jar files, replacing files that already exist.
+   *
+   * @param archive {@link File}
+   * @param outputDir {@link File}
+   * @param names {@link Set} of entry names
+   * @throws IOException IOException
+   */
+  public void decompressEntries(final File archive, final File outputDir, final Set<String> names)
+      throws IOException {
+    decompressZipFile(archive, outputDir, ExtractionFilter.full(), names);
   }
 
-  private void decompress(final ArchiveInputStream<?> in, final File outputDir) throws IOException {
+  /**
+   * Decompress .zip / .jar files using their central directory, so entries are inflated and
+   * written in parallel on a bounded {@link ForkJoinPool}. Directories are created up front, files
+   * that already exist are skipped and of duplicate entries the first one wins.
+   *
+   * @param archive {@link File}
+   * @param outputDir {@link File}
+   * @param filter {@link ExtractionFilter}
+   * @param names {@link Set} of entry names to replace, null to extract all missing files
+   * @throws IOException IOException
+   */
+  private void decompressZipFile(final File archive, final File outputDir,
+      final ExtractionFilter filter, final Set<String> names) throws IOException {
 
     Path directory = Path.of(outputDir.getCanonicalPath());
 
-    if (!outputDir.exists()) {
-      Files.createDirectories(directory);
-    }
+    try (ZipFile zip = new ZipFile(archive)) {
 
-    ArchiveEntry entry;
+      Map<String, ZipEntry> files = new LinkedHashMap<>();
+      Set<Path> directories = new TreeSet<>();
+      directories.add(directory);
 
-    while ((entry = in.getNextEntry()) != null) {
+      Enumeration<? extends ZipEntry> entries = zip.entries();
+      while (entries.hasMoreElements()) {
+        ZipEntry entry = entries.nextElement();
+        Path fullpath = Path.of(directory.toString(), entry.getName());
 
-      TarArchiveEntry tarEntry = null;
-      if (entry instanceof TarArchiveEntry) {
-        tarEntry = (TarArchiveEntry) entry;
-      }
+        if (!filter.include(entry.getName(), entry.getSize())
+            || names != null && !names.contains(entry.getName())) {
+          continue;
+        }
 
-      if (!entry.isDirectory()) {
+        if (entry.isDirectory()) {
+          directories.add(fullpath);
+        } else if (!files.containsKey(entry.getName())
+            && (names != null || !Files.exists(fullpath))) {
+          files.put(entry.getName(), entry);
+          if (fullpath.getParent() != null) {
+            directories.add(fullpath.getParent());
+          }
+        }
+      }
 
-        if (tarEntry != null && tarEntry.isSymbolicLink()) {
+      for (Path dir : directories) {
+        Files.createDirectories(dir);
+      }
 
-          try {
+      EXTRACTORS.submit(() -> files.values().parallelStream().forEach(entry -> {
+        try (InputStream in = zip.getInputStream(entry)) {
+          writeFile(in, Path.of(directory.toString(), entry.getName()), entry.getSize());
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      })).get();
 
-            try (FileSystem filesystem = createResource()) {
-              Path fullpath =
-                  filesystem.getPath(directory.toAbsolutePath().toString(), entry.getName());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Decompress of " + archive + " interrupted", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause() instanceof UncheckedIOException ? e.getCause().getCause()
+          : e.getCause();
+      throw cause instanceof IOException ? (IOException) cause
+          : new IOException(cause.getMessage(), cause);
+    }
+  }
 
-              createParentDirectories(fullpath);
+  /**
+   * Write an entry to a file through a pooled direct buffer, so the file is written in chunks of
+   * up to {@link BufferPool#DEFAULT_BUFFER_SIZE} with a single write for most entries. When the
+   * entry size is known and larger than a buffer, the file is extended to its final length before
+   * it is written.
+   *
+   * @param in {@link InputStream} positioned at the entry
+   * @param file {@link Path}
+   * @param size entry size, -1 if unknown
+   * @throws IOException IOException
+   */
+  private void writeFile(final InputStream in, final Path file, final long size)
+      throws IOException {
 
-              try {
-                Files.createSymbolicLink(fullpath, filesystem.getPath(tarEntry.getLinkName()));
-              } catch (FileAlreadyExistsException e) {
-                // ignore
-              }
-            }
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        BufferPool.Lease lease = BUFFERS.acquire(size)) {
 
-          } catch (UnsupportedOperationException e) {
-            // ignore
-          }
+      if (size > BUFFERS.getBufferSize()) {
+        channel.write(ByteBuffer.wrap(new byte[1]), size - 1);
+      }
 
-        } else {
+      ByteBuffer buffer = lease.buffer();
+      byte[] scratch = lease.scratch();
+      long position = 0;
+      int count;
 
-          Path fullpath = Path.of(directory.toAbsolutePath().toString(), entry.getName());
-          File file = fullpath.toFile();
+      while ((count = in.read(scratch)) != -1) {
 
-          if (!file.exists()) {
+        if (count > buffer.remaining()) {
+          position += flush(channel, buffer, position);
+        }
 
-            createParentDirectories(fullpath);
+        buffer.put(scratch, 0, count);
+      }
 
-            int count;
-            byte[] data = new byte[BUFFER_SIZE];
-            FileOutputStream fos = new FileOutputStream(file, false);
-            try (BufferedOutputStream dest = new BufferedOutputStream(fos, BUFFER_SIZE)) {
-              while ((count = in.read(data, 0, BUFFER_SIZE)) != -1) {
-                dest.write(data, 0, count);
-              }
-            }
+      position += flush(channel, buffer, position);
 
-            int mode = tarEntry != null ? tarEntry.getMode() : -1;
-            if (tarEntry != null && (mode & 64) != 0) {
-              boolean ok = file.setExecutable(true, false);
-              if (!ok) {
-                throw new IOException("Unable to set executable permission on " + fullpath);
-              }
-            }
-          }
-        }
+      if (channel.size() != position) {
+        channel.truncate(position);
       }
     }
   }
 
-  private FileSystem createResource() {
-    return FileSystems.getDefault();
-  }
-
-  private void createParentDirectories(final Path path) throws IOException {
+  private int flush(final FileChannel channel, final ByteBuffer buffer, final long position)
+      throws IOException {
 
-    Path parent = path.getParent();
-
-    if (parent != null) {
-      Files.createDirectories(parent);
+    buffer.flip();
+    int count = buffer.remaining();
+    long offset = position;
+    while (buffer.hasRemaining()) {
+      offset += channel.write(buffer, offset);
     }
+
+    buffer.clear();
+    return count;
   }
 }
@@ -0,0 +1,149 @@
+/**
+ * Copyright [2020] FormKiQ Inc. Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the License
+ * at
+ *
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.formkiq.gradle.internal;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of large direct {@link ByteBuffer}s, allocating direct memory is expensive so buffers are
+ * reused across entries and archives instead of being allocated per file.
+ */
+public class BufferPool {
+
+  /** Default Buffer Size (1 MB). */
+  public static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+
+  /** Size of the heap buffer streams are read into before they are copied to the buffer. */
+  private static final int SCRATCH_SIZE = 64 * 1024;
+
+  /** Pooled Buffers. */
+  private final ConcurrentLinkedDeque<Lease> pool = new ConcurrentLinkedDeque<>();
+
+  /** Buffer Size. */
+  private final int bufferSize;
+
+  /** Maximum number of pooled buffers. */
+  private final int maxPooled;
+
+  /** Capacity of the buffers currently leased. */
+  private final AtomicLong leased = new AtomicLong();
+
+  /** Highest capacity leased at once. */
+  private final AtomicLong peakLeased = new AtomicLong();
+
+  /**
+   * constructor.
+   *
+   * @param size size of a buffer
+   * @param maxPooledBuffers maximum number of buffers kept in the pool
+   */
+  public BufferPool(final int size, final int maxPooledBuffers) {
+    this.bufferSize = size;
+    this.maxPooled = maxPooledBuffers;
+  }
+
+  /**
+   * Get Buffer Size.
+   *
+   * @return int
+   */
+  public int getBufferSize() {
+    return this.bufferSize;
+  }
+
+  /**
+   * Get Highest capacity in bytes of the buffers leased at once.
+   *
+   * @return long
+   */
+  public long getPeakLeased() {
+    return this.peakLeased.get();
+  }
+
+  /**
+   * Acquire a buffer, sized for the number of bytes that will be written through it.
+   *
+   * @param size number of bytes, -1 if unknown
+   * @return {@link Lease}, close it to return the buffer to the pool
+   */
+  public Lease acquire(final long size) {
+    Lease lease = this.pool.pollFirst();
+    if (lease == null) {
+      lease = new Lease(ByteBuffer.allocateDirect(this.bufferSize),
+          new byte[Math.min(SCRATCH_SIZE, this.bufferSize)]);
+    }
+
+    lease.closed = false;
+    long capacity = this.leased.addAndGet(lease.buffer.capacity());
+    this.peakLeased.accumulateAndGet(capacity, Math::max);
+
+    lease.buffer.clear();
+    if (size >= 0 && size < this.bufferSize) {
+      lease.buffer.limit((int) size);
+    }
+
+    return lease;
+  }
+
+  private void release(final Lease lease) {
+    this.leased.addAndGet(-lease.buffer.capacity());
+    if (this.pool.size() < this.maxPooled) {
+      this.pool.offerFirst(lease);
+    }
+  }
+
+  /** Buffer acquired from the pool. */
+  public final class Lease implements AutoCloseable {
+    /** Direct Buffer. */
+    private final ByteBuffer buffer;
+    /** Heap buffer streams are read into. */
+    private final byte[] scratch;
+    /** Whether the lease was returned. */
+    private boolean closed;
+
+    private Lease(final ByteBuffer directBuffer, final byte[] scratchBuffer) {
+      this.buffer = directBuffer;
+      this.scratch = scratchBuffer;
+    }
+
+    /**
+     * Get Direct Buffer.
+     *
+     * @return {@link ByteBuffer}
+     */
+    public ByteBuffer buffer() {
+      return this.buffer;
+    }
+
+    /**
+     * Get Heap buffer an {@link java.io.InputStream} is read into.
+     *
+     * @return byte[]
+     */
+    public byte[] scratch() {
+      return this.scratch;
+    }
+
+    @Override
+    public void close() {
+      if (!this.closed) {
+        this.closed = true;
+        release(this);
+      }
+    }
+  }
+}
@@ -0,0 +1,335 @@
+/**
+ * Copyright [2020] FormKiQ Inc. Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the License
+ * at
+ *
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.formkiq.gradle.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Admits native builds while their memory and CPU reservations fit the machine, the others wait in
+ * arrival order. A build's reservation is learned from the peak RSS and CPU load native-image
+ * reported for it on its previous run, with headroom so a build that needs more can grow. A build
+ * running alone is always admitted. The builder heap is not sized from the learned reservation, see
+ * {@link Admission#getBuilderMemory()}.
+ */
+public class BuildScheduler {
+
+  /** Memory kept for the operating system (512 MB). */
+  public static final long OS_RESERVED = 512L * 1024 * 1024;
+
+  /** Memory reserved for a build without history (8 GB). */
+  public static final long DEFAULT_MEMORY = 8L * 1024 * 1024 * 1024;
+
+  /** CPUs reserved for a build without history. */
+  public static final int DEFAULT_CPUS = 4;
+
+  private static final Logger LOGGER = Logger.getLogger(BuildScheduler.class.getName());
+
+  /** Bytes per MB. */
+  private static final long MB = 1024L * 1024;
+
+  /** Peak RSS key suffix. */
+  private static final String PEAK_RSS = ".peakRss";
+
+  /** CPU load key suffix. */
+  private static final String CPU_LOAD = ".cpuLoad";
+
+  /** Memory available to native builds. */
+  private final long memoryBudget;
+
+  /** CPUs available to native builds. */
+  private final int cpuBudget;
+
+  /** File the observed footprints are persisted to, may be null. */
+  private final Path historyFile;
+
+  /** Observed footprints. */
+  private final Properties history = new Properties();
+
+  /** Builds waiting to be admitted, in arrival order. */
+  private final Deque<Object> waiting = new ArrayDeque<>();
+
+  /** Memory reserved by running builds. */
+  private long memoryInUse;
+
+  /** CPUs reserved by running builds. */
+  private int cpusInUse;
+
+  /** Number of running builds. */
+  private int running;
+
+  /**
+   * constructor, the budget is the memory and CPUs of the machine as limited by the container's
+   * cgroup (the JDK's {@link com.sun.management.OperatingSystemMXBean} is container aware), less
+   * the heap of the Gradle JVM.
+   *
+   * @param footprints {@link Path} file the observed footprints are persisted to, may be null
+   */
+  public BuildScheduler(final Path footprints) {
+    this(totalMemory() - Runtime.getRuntime().maxMemory() - OS_RESERVED,
+        Runtime.getRuntime().availableProcessors(), footprints);
+  }
+
+  /**
+   * constructor.
+   *
+   * @param memory memory in bytes available to native builds
+   * @param cpus CPUs available to native builds
+   * @param footprints {@link Path} file the observed footprints are persisted to, may be null
+   */
+  public BuildScheduler(final long memory, final int cpus, final Path footprints) {
+    this.memoryBudget = Math.max(memory, MB);
+    this.cpuBudget = Math.max(cpus, 1);
+    this.historyFile = footprints;
+
+    if (footprints != null && Files.isRegularFile(footprints)) {
+      try (InputStream in = Files.newInputStream(footprints)) {
+        this.history.load(in);
+      } catch (IOException | IllegalArgumentException e) {
+        LOGGER.log(Level.WARNING, "Unable to read native build footprints {0}", footprints);
+      }
+    }
+  }
+
+  private static long totalMemory() {
+    OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+    return os instanceof com.sun.management.OperatingSystemMXBean
+        ? ((com.sun.management.OperatingSystemMXBean) os).getTotalMemorySize()
+        : DEFAULT_MEMORY + Runtime.getRuntime().maxMemory() + OS_RESERVED;
+  }
+
+  /**
+   * Parse a JVM memory size, e.g. "6g" or "4096m".
+   *
+   * @param size {@link String}
+   * @return long bytes, -1 if it cannot be parsed
+   */
+  public static long parseSize(final String size) {
+    if (size == null || size.isBlank()) {
+      return -1;
+    }
+
+    String s = size.trim().toLowerCase(Locale.ROOT);
+    long unit = 1;
+    switch (s.charAt(s.length() - 1)) {
+      case 'k':
+        unit = 1024L;
+        break;
+      case 'm':
+        unit = MB;
+        break;
+      case 'g':
+        unit = MB * 1024;
+        break;
+      case 't':
+        unit = MB * 1024 * 1024;
+        break;
+      default:
+        break;
+    }
+
+    try {
+      return Long.parseLong(unit == 1 ? s : s.substring(0, s.length() - 1)) * unit;
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  /**
+   * Wait until a build fits the budget and reserve its footprint.
+   *
+   * @param key build key, e.g. the task path
+   * @param memory memory in bytes the build is known to need, -1 to estimate it
+   * @param cpus CPUs the build is known to need, -1 to estimate them
+   * @return {@link Admission}, closing it releases the reservation
+   * @throws InterruptedException InterruptedException
+   */
+  public Admission admit(final String key, final long memory, final int cpus)
+      throws InterruptedException {
+
+    long reservedMemory = Math.min(memory > 0 ? memory : estimateMemory(key), this.memoryBudget);
+    int reservedCpus = Math.min(cpus > 0 ? cpus : estimateCpus(key), this.cpuBudget);
+
+    Object ticket = new Object();
+
+    synchronized (this) {
+      this.waiting.addLast(ticket);
+      try {
+        while (this.waiting.peekFirst() != ticket || (this.running > 0
+            && (this.memoryInUse + reservedMemory > this.memoryBudget
+                || this.cpusInUse + reservedCpus > this.cpuBudget))) {
+          wait();
+        }
+      } finally {
+        this.waiting.remove(ticket);
+        notifyAll();
+      }
+
+      // CPUs are not exclusive, a build may also use the CPUs idle when it is admitted
+      int idleCpus = this.cpuBudget - this.cpusInUse;
+      this.memoryInUse += reservedMemory;
+      this.cpusInUse += reservedCpus;
+      this.running++;
+
+      LOGGER.log(Level.INFO,
+          "Admitted native build {0} with {1} MB and {2} CPUs ({3} running, {4} MB of {5} MB and"
+              + " {6} of {7} CPUs reserved)",
+          new Object[] {key, Long.valueOf(reservedMemory / MB), Integer.valueOf(reservedCpus),
+              Integer.valueOf(this.running), Long.valueOf(this.memoryInUse / MB),
+              Long.valueOf(this.memoryBudget / MB), Integer.valueOf(this.cpusInUse),
+              Integer.valueOf(this.cpuBudget)});
+
+      return new Admission(reservedMemory, reservedCpus, Math.max(reservedCpus, idleCpus),
+          Math.min(DEFAULT_MEMORY, this.memoryBudget / this.running));
+    }
+  }
+
+  private synchronized void release(final Admission admission) {
+    this.memoryInUse -= admission.memory;
+    this.cpusInUse -= admission.reservedCpus;
+    this.running--;
+    notifyAll();
+  }
+
+  /**
+   * Record the footprint native-image reported for a build.
+   *
+   * @param key build key
+   * @param peakRss peak RSS in bytes
+   * @param cpuLoad average number of busy CPUs
+   */
+  public synchronized void record(final String key, final long peakRss, final double cpuLoad) {
+
+    this.history.setProperty(key + PEAK_RSS, String.valueOf(peakRss));
+    this.history.setProperty(key + CPU_LOAD, String.valueOf(cpuLoad));
+
+    if (this.historyFile != null) {
+      try {
+        Path parent = this.historyFile.getParent();
+        if (parent != null) {
+          Files.createDirectories(parent);
+        }
+        try (OutputStream out = Files.newOutputStream(this.historyFile)) {
+          this.history.store(out, "graalvm-native-plugin native build footprints");
+        }
+      } catch (IOException e) {
+        LOGGER.log(Level.WARNING, "Unable to write native build footprints {0}",
+            this.historyFile);
+      }
+    }
+  }
+
+  /**
+   * Estimate the memory of a build, its last peak RSS with 50% headroom.
+   *
+   * @param key build key
+   * @return long bytes
+   */
+  synchronized long estimateMemory(final String key) {
+    try {
+      String peakRss = this.history.getProperty(key + PEAK_RSS);
+      return peakRss != null ? Long.parseLong(peakRss) * 3 / 2 : DEFAULT_MEMORY;
+    } catch (NumberFormatException e) {
+      return DEFAULT_MEMORY;
+    }
+  }
+
+  /**
+   * Estimate the CPUs of a build, its last CPU load with 25% headroom.
+   *
+   * @param key build key
+   * @return int
+   */
+  synchronized int estimateCpus(final String key) {
+    try {
+      String cpuLoad = this.history.getProperty(key + CPU_LOAD);
+      return cpuLoad != null ? Math.max((int) Math.ceil(Double.parseDouble(cpuLoad) * 1.25), 1)
+          : DEFAULT_CPUS;
+    } catch (NumberFormatException e) {
+      return DEFAULT_CPUS;
+    }
+  }
+
+  /** Reservation of an admitted build. */
+  public final class Admission implements AutoCloseable {
+    /** Reserved memory in bytes. */
+    private final long memory;
+    /** Reserved CPUs. */
+    private final int reservedCpus;
+    /** CPUs the build may use. */
+    private final int cpus;
+    /** Memory the builder heap is sized from. */
+    private final long builderMemory;
+    /** Whether the reservation was released. */
+    private boolean released;
+
+    private Admission(final long reservedMemory, final int reserved, final int usableCpus,
+        final long heapMemory) {
+      this.memory = reservedMemory;
+      this.reservedCpus = reserved;
+      this.cpus = usableCpus;
+      this.builderMemory = heapMemory;
+    }
+
+    /**
+     * Get Reserved memory in bytes.
+     *
+     * @return long
+     */
+    public long getMemory() {
+      return this.memory;
+    }
+
+    /**
+     * Get CPUs the build may use.
+     *
+     * @return int
+     */
+    public int getCpus() {
+      return this.cpus;
+    }
+
+    /**
+     * Get Memory the builder heap is sized from: the budget divided by the builds running when it
+     * was admitted, at most what a build without history reserves. A JVM grows into the heap it is
+     * given, so sizing the heap from the learned reservation would raise the next peak RSS, and
+     * with it the next reservation, on every run.
+     *
+     * @return long bytes
+     */
+    public long getBuilderMemory() {
+      return this.builderMemory;
+    }
+
+    @Override
+    public synchronized void close() {
+      if (!this.released) {
+        this.released = true;
+        release(this);
+      }
+    }
+  }
+}
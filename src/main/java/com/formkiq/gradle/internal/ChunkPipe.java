@@ -0,0 +1,134 @@
+/**
+ * Copyright [2020] FormKiQ Inc. Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the License
+ * at
+ *
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.formkiq.gradle.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Bounded pipe of byte chunks between a producer thread and an {@link InputStream} consumer, so a
+ * producer (e.g. network) and a consumer (e.g. extraction) run concurrently. The producer blocks
+ * once the pipe holds its maximum number of chunks.
+ */
+public class ChunkPipe extends InputStream {
+
+  /** End of stream marker. */
+  private static final byte[] END = new byte[0];
+
+  /** Chunks. */
+  private final BlockingQueue<byte[]> queue;
+
+  /** Producer failure. */
+  private volatile Throwable failure;
+
+  /** Current chunk, only used by the consumer thread. */
+  private byte[] chunk;
+
+  /** Position in the current chunk, only used by the consumer thread. */
+  private int position;
+
+  /**
+   * constructor.
+   *
+   * @param capacity maximum number of chunks held
+   */
+  public ChunkPipe(final int capacity) {
+    this.queue = new ArrayBlockingQueue<>(capacity);
+  }
+
+  /**
+   * Add a copy of a chunk, blocks while the pipe is full.
+   *
+   * @param data bytes
+   * @param length number of bytes
+   * @throws InterruptedException InterruptedException
+   */
+  public void write(final byte[] data, final int length) throws InterruptedException {
+    if (length > 0) {
+      this.queue.put(Arrays.copyOf(data, length));
+    }
+  }
+
+  /**
+   * Signal the end of the stream.
+   *
+   * @throws InterruptedException InterruptedException
+   */
+  public void finish() throws InterruptedException {
+    this.queue.put(END);
+  }
+
+  /**
+   * Signal the producer failed, the consumer will get an {@link IOException}.
+   *
+   * @param e {@link Throwable}
+   */
+  public void fail(final Throwable e) {
+    this.failure = e;
+    do {
+      this.queue.clear();
+    } while (!this.queue.offer(END));
+  }
+
+  private boolean nextChunk() throws IOException {
+
+    if (this.chunk == END) {
+      return false;
+    }
+
+    if (this.chunk == null || this.position >= this.chunk.length) {
+      try {
+        this.chunk = this.queue.take();
+        this.position = 0;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted reading pipe");
+      }
+    }
+
+    if (this.failure != null) {
+      throw this.failure instanceof IOException ? (IOException) this.failure
+          : new IOException(this.failure.getMessage(), this.failure);
+    }
+
+    return this.chunk != END;
+  }
+
+  @Override
+  public int read() throws IOException {
+    return nextChunk() ? this.chunk[this.position++] & 0xff : -1;
+  }
+
+  @Override
+  public int read(final byte[] b, final int off, final int len) throws IOException {
+
+    if (len == 0) {
+      return 0;
+    }
+
+    if (!nextChunk()) {
+      return -1;
+    }
+
+    int count = Math.min(len, this.chunk.length - this.position);
+    System.arraycopy(this.chunk, this.position, b, off, count);
+    this.position += count;
+    return count;
+  }
+}
@@ -0,0 +1,101 @@
+/**
+ * Copyright [2020] FormKiQ Inc. Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the License
+ * at
+ *
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.formkiq.gradle.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Content-addressed store of exploded jars shared by every project of a build. A jar is exploded
+ * once per SHA-256 and projects assemble their exploded classpath with hard links to the store,
+ * falling back to copies when the file system does not support hard links (e.g. the store is on
+ * another device). Entries are evicted least recently used first, files still linked from a
+ * project keep their content after eviction.
+ */
+public class ClassStore {
+
+  /** Default maximum store size (5 GB). */
+  public static final long DEFAULT_MAX_SIZE = 5L * 1024 * 1024 * 1024;
+
+  private static final Logger LOGGER = Logger.getLogger(ClassStore.class.getName());
+
+  /** Directory inside a store entry the jar is exploded to. */
+  private static final String CLASSES = "classes";
+
+  /** {@link ArchiveUtils}. */
+  private final ArchiveUtils archiveUtils = new ArchiveUtils();
+
+  /** Store entries. */
+  private final ToolchainCache cache;
+
+  /** Whether hard links are supported, cleared on the first failed link. */
+  private volatile boolean linkSupported = true;
+
+  /**
+   * constructor.
+   *
+   * @param storeDirectory {@link Path}
+   * @param maxStoreSize maximum size in bytes
+   */
+  public ClassStore(final Path storeDirectory, final long maxStoreSize) {
+    this.cache = new ToolchainCache(storeDirectory, maxStoreSize, "exploded jar");
+  }
+
+  /**
+   * Get the exploded directory of a jar, exploding the jar first if it is not in the store.
+   *
+   * @param jar {@link File}
+   * @param sha256 SHA-256 of the jar
+   * @return {@link Path}
+   * @throws IOException IOException
+   */
+  public Path explode(final File jar, final String sha256) throws IOException {
+    Path entry = this.cache.provision(ToolchainCache.key(sha256),
+        dir -> this.archiveUtils.decompressJar(jar, dir.resolve(CLASSES).toFile()));
+    return entry.resolve(CLASSES);
+  }
+
+  /**
+   * Replace a file with a hard link to a store file, or a copy when it cannot be linked.
+   *
+   * @param source {@link Path} store file
+   * @param target {@link Path}
+   * @throws IOException IOException
+   */
+  public void link(final Path source, final Path target) throws IOException {
+
+    Files.deleteIfExists(target);
+    Path parent = target.getParent();
+    if (parent != null) {
+      Files.createDirectories(parent);
+    }
+
+    if (this.linkSupported) {
+      try {
+        Files.createLink(target, source);
+        return;
+      } catch (IOException | UnsupportedOperationException e) {
+        LOGGER.log(Level.INFO, "Hard links to {0} not supported, copying instead", source);
+        this.linkSupported = false;
+      }
+    }
+
+    Files.copy(source, target);
+  }
+}
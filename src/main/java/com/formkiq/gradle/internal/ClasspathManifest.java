@@ -0,0 +1,277 @@
+/**
+ * Copyright [2020] FormKiQ Inc. Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the License
+ * at
+ *
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.formkiq.gradle.internal;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Manifest of an exploded classpath. For every jar, in classpath order, it records the jar's
+ * path, size, last modified time and SHA-256, and the entries (with their CRC-32 and size) the jar
+ * produced, i.e. the entries no earlier jar on the classpath contains.
+ *
+ * <pre>
+ * v1
+ * jar &lt;sha256&gt; &lt;size&gt; &lt;lastModified&gt; &lt;path&gt;
+ * entry &lt;crc&gt; &lt;size&gt; &lt;name&gt;
+ * </pre>
+ */
+public class ClasspathManifest {
+
+  /** Header. */
+  private static final String HEADER = "v1";
+
+  /** Jar line prefix. */
+  private static final String JAR = "jar ";
+
+  /** Entry line prefix. */
+  private static final String ENTRY = "entry ";
+
+  /** Jars in classpath order. */
+  private final List<Jar> jars;
+
+  /**
+   * constructor.
+   *
+   * @param classpathJars {@link List} {@link Jar} in classpath order
+   */
+  public ClasspathManifest(final List<Jar> classpathJars) {
+    this.jars = classpathJars;
+  }
+
+  /**
+   * Read a manifest.
+   *
+   * @param file {@link Path}
+   * @return {@link ClasspathManifest}, null if it does not exist or cannot be read
+   */
+  public static ClasspathManifest read(final Path file) {
+
+    if (!Files.isRegularFile(file)) {
+      return null;
+    }
+
+    List<Jar> jars = new ArrayList<>();
+
+    try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+
+      if (!HEADER.equals(reader.readLine())) {
+        return null;
+      }
+
+      Jar jar = null;
+      String line;
+      while ((line = reader.readLine()) != null) {
+
+        if (line.startsWith(JAR)) {
+          String[] s = line.substring(JAR.length()).split(" ", 4);
+          jar = new Jar(s[3], Long.parseLong(s[1]), Long.parseLong(s[2]), s[0]);
+          jars.add(jar);
+
+        } else if (line.startsWith(ENTRY) && jar != null) {
+          String[] s = line.substring(ENTRY.length()).split(" ", 3);
+          jar.getEntries().put(s[2], new Entry(Long.parseLong(s[0]), Long.parseLong(s[1])));
+
+        } else {
+          return null;
+        }
+      }
+
+    } catch (IOException | RuntimeException e) {
+      return null;
+    }
+
+    return new ClasspathManifest(jars);
+  }
+
+  /**
+   * Write the manifest.
+   *
+   * @param file {@link Path}
+   * @throws IOException IOException
+   */
+  public void write(final Path file) throws IOException {
+
+    try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+      writer.write(HEADER);
+      writer.newLine();
+
+      for (Jar jar : this.jars) {
+        writer.write(JAR + jar.getSha256() + " " + jar.getSize() + " " + jar.getLastModified() + " "
+            + jar.getPath());
+        writer.newLine();
+
+        for (Map.Entry<String, Entry> e : jar.getEntries().entrySet()) {
+          writer.write(ENTRY + e.getValue().getCrc() + " " + e.getValue().getSize() + " "
+              + e.getKey());
+          writer.newLine();
+        }
+      }
+    }
+  }
+
+  /**
+   * Get Jars in classpath order.
+   *
+   * @return {@link List} {@link Jar}
+   */
+  public List<Jar> getJars() {
+    return Collections.unmodifiableList(this.jars);
+  }
+
+  /**
+   * Get every entry on the classpath.
+   *
+   * @return {@link Map} entry name to {@link Entry}
+   */
+  public Map<String, Entry> getEntries() {
+    Map<String, Entry> entries = new LinkedHashMap<>();
+    for (Jar jar : this.jars) {
+      entries.putAll(jar.getEntries());
+    }
+    return entries;
+  }
+
+  /** Jar on the classpath. */
+  public static final class Jar {
+    /** Path. */
+    private final String path;
+    /** Size. */
+    private final long size;
+    /** Last Modified. */
+    private final long lastModified;
+    /** SHA-256. */
+    private final String sha256;
+    /** Entries the jar produced. */
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+
+    /**
+     * constructor.
+     *
+     * @param jarPath jar path
+     * @param jarSize jar size
+     * @param jarLastModified jar last modified time
+     * @param jarSha256 jar SHA-256
+     */
+    public Jar(final String jarPath, final long jarSize, final long jarLastModified,
+        final String jarSha256) {
+      this.path = jarPath;
+      this.size = jarSize;
+      this.lastModified = jarLastModified;
+      this.sha256 = jarSha256;
+    }
+
+    /**
+     * Get Path.
+     *
+     * @return {@link String}
+     */
+    public String getPath() {
+      return this.path;
+    }
+
+    /**
+     * Get Size.
+     *
+     * @return long
+     */
+    public long getSize() {
+      return this.size;
+    }
+
+    /**
+     * Get Last Modified.
+     *
+     * @return long
+     */
+    public long getLastModified() {
+      return this.lastModified;
+    }
+
+    /**
+     * Get SHA-256.
+     *
+     * @return {@link String}
+     */
+    public String getSha256() {
+      return this.sha256;
+    }
+
+    /**
+     * Get Entries the jar produced.
+     *
+     * @return {@link Map} entry name to {@link Entry}
+     */
+    public Map<String, Entry> getEntries() {
+      return this.entries;
+    }
+  }
+
+  /** Entry extracted from a jar. */
+  public static final class Entry {
+    /** CRC-32. */
+    private final long crc;
+    /** Size. */
+    private final long size;
+
+    /**
+     * constructor.
+     *
+     * @param entryCrc CRC-32
+     * @param entrySize size
+     */
+    public Entry(final long entryCrc, final long entrySize) {
+      this.crc = entryCrc;
+      this.size = entrySize;
+    }
+
+    /**
+     * Get CRC-32.
+     *
+     * @return long
+     */
+    public long getCrc() {
+      return this.crc;
+    }
+
+    /**
+     * Get Size.
+     *
+     * @return long
+     */
+    public long getSize() {
+      return this.size;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      return o instanceof Entry && ((Entry) o).crc == this.crc && ((Entry) o).size == this.size;
+    }
+
+    @Override
+    public int hashCode() {
+      return Long.hashCode(this.crc) * 31 + Long.hashCode(this.size);
+    }
+  }
+}
@@ -0,0 +1,182 @@
+/**
+ * Copyright [2020] FormKiQ Inc. Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the License
+ * at
+ *
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.formkiq.gradle.internal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Sidecar journal of a partial download. The first line identifies the remote file (length and
+ * validator), each following line records a completed byte range "first-last".
+ */
+public class DownloadJournal implements AutoCloseable {
+
+  /** Journal Format Version. */
+  private static final String VERSION = "v1";
+
+  /** Journal File. */
+  private final Path file;
+
+  /** Completed ranges, first to last (inclusive). */
+  private final TreeMap<Long, Long> completed = new TreeMap<>();
+
+  /** Journal Channel. */
+  private final FileChannel channel;
+
+  /**
+   * Open a journal, any existing journal that does not match the remote file is discarded.
+   *
+   * @param journalFile {@link Path}
+   * @param contentLength remote content length
+   * @param validator remote ETag / Last-Modified, may be empty
+   * @throws IOException IOException
+   */
+  public DownloadJournal(final Path journalFile, final long contentLength, final String validator)
+      throws IOException {
+    this.file = journalFile;
+    String header = VERSION + " " + contentLength + " " + validator;
+
+    boolean resume = false;
+    if (Files.exists(journalFile)) {
+      List<String> lines = Files.readAllLines(journalFile, StandardCharsets.UTF_8);
+      if (!lines.isEmpty() && header.equals(lines.get(0))) {
+        resume = true;
+        for (String line : lines.subList(1, lines.size())) {
+          addRange(line);
+        }
+      }
+    }
+
+    if (resume) {
+      this.channel = FileChannel.open(journalFile, StandardOpenOption.WRITE,
+          StandardOpenOption.APPEND);
+      // terminate a line that may have been cut short by a crash
+      write("");
+    } else {
+      this.channel = FileChannel.open(journalFile, StandardOpenOption.CREATE,
+          StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+      write(header);
+      this.channel.force(false);
+    }
+  }
+
+  private void addRange(final String line) {
+    String[] s = line.trim().split("-");
+    if (s.length == 2) {
+      try {
+        this.completed.put(Long.valueOf(s[0]), Long.valueOf(s[1]));
+      } catch (NumberFormatException e) {
+        // ignore truncated line
+      }
+    }
+  }
+
+  /**
+   * Whether any bytes have already been downloaded.
+   *
+   * @return boolean
+   */
+  public boolean hasCompletedRanges() {
+    return !this.completed.isEmpty();
+  }
+
+  /**
+   * Get completed ranges.
+   *
+   * @return {@link Map} of first to last (inclusive)
+   */
+  public synchronized Map<Long, Long> getCompletedRanges() {
+    return new TreeMap<>(this.completed);
+  }
+
+  /**
+   * Get ranges of [0, contentLength) not yet completed, split into segments of at most segmentSize
+   * bytes.
+   *
+   * @param contentLength total length
+   * @param segmentSize maximum segment size
+   * @return {@link List} of {first, last}
+   */
+  public synchronized List<long[]> getMissingRanges(final long contentLength,
+      final long segmentSize) {
+
+    List<long[]> missing = new ArrayList<>();
+    long position = 0;
+
+    for (Map.Entry<Long, Long> e : this.completed.entrySet()) {
+      if (e.getKey() > position) {
+        split(missing, position, Math.min(e.getKey(), contentLength) - 1, segmentSize);
+      }
+      position = Math.max(position, e.getValue() + 1);
+    }
+
+    if (position < contentLength) {
+      split(missing, position, contentLength - 1, segmentSize);
+    }
+
+    return missing;
+  }
+
+  private void split(final List<long[]> list, final long first, final long last,
+      final long segmentSize) {
+    for (long start = first; start <= last; start += segmentSize) {
+      list.add(new long[] {start, Math.min(start + segmentSize - 1, last)});
+    }
+  }
+
+  /**
+   * Record a completed range, the range must already be durable in the partial file.
+   *
+   * @param first first byte
+   * @param last last byte (inclusive)
+   * @throws IOException IOException
+   */
+  public synchronized void complete(final long first, final long last) throws IOException {
+    this.completed.put(first, last);
+    write(first + "-" + last);
+    this.channel.force(false);
+  }
+
+  private void write(final String line) throws IOException {
+    ByteBuffer buffer = ByteBuffer.wrap((line + "\n").getBytes(StandardCharsets.UTF_8));
+    while (buffer.hasRemaining()) {
+      this.channel.write(buffer);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    this.channel.close();
+  }
+
+  /**
+   * Close and delete the journal.
+   *
+   * @throws IOException IOException
+   */
+  public void delete() throws IOException {
+    close();
+    Files.deleteIfExists(this.file);
+  }
+}
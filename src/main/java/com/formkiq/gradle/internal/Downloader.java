@@ -18,22 +18,131 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.nio.ByteBuffer;
 import java.nio.channels.Channels;
 import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /** Utility class for Downloading files from a URL. */
 public class Downloader {
 
+  /** Default number of parallel connections. */
+  public static final int DEFAULT_CONNECTIONS = 4;
+
+  /** Default size of a single Range request segment (8 MB). */
+  public static final long DEFAULT_SEGMENT_SIZE = 8L * 1024 * 1024;
+
+  /** Default time to wait for a response or for data of a response body. */
+  public static final Duration DEFAULT_READ_TIMEOUT = Duration.ofSeconds(30);
+
   private static final Logger LOGGER = Logger.getLogger(Downloader.class.getName());
 
+  /** Copy Buffer Size. */
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  /** Number of attempts per segment. */
+  private static final int SEGMENT_ATTEMPTS = 3;
+
+  /** Number of attempts to fetch a published checksum. */
+  private static final int CHECKSUM_ATTEMPTS = 3;
+
+  /** Connection / Probe timeout. */
+  private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+  /** Number of {@link #BUFFER_SIZE} chunks buffered between the network and a stream consumer. */
+  private static final int PIPE_CHUNKS = 256;
+
+  /** HTTP 206 Partial Content. */
+  private static final int HTTP_PARTIAL = 206;
+
+  /** HTTP 400 Bad Request. */
+  private static final int HTTP_BAD_REQUEST = 400;
+
+  /** HTTP 404 Not Found. */
+  private static final int HTTP_NOT_FOUND = 404;
+
+  /**
+   * {@link HttpClient} shared by all downloads so probes, downloads and retries reuse pooled (and
+   * where supported HTTP/2) connections.
+   */
+  private static final HttpClient CLIENT = HttpClient.newBuilder()
+      .version(HttpClient.Version.HTTP_2).followRedirects(HttpClient.Redirect.NORMAL)
+      .connectTimeout(TIMEOUT).build();
+
+  /** Maximum number of parallel connections. */
+  private final int connections;
+
+  /** Size of a single segment. */
+  private final long segmentSize;
+
+  /** Time to wait for a response or for data of a response body. */
+  private final Duration readTimeout;
+
+  /** constructor. */
+  public Downloader() {
+    this(DEFAULT_CONNECTIONS, DEFAULT_SEGMENT_SIZE);
+  }
+
+  /**
+   * constructor.
+   *
+   * @param maxConnections maximum number of parallel connections
+   * @param rangeSegmentSize size in bytes of a single Range request
+   */
+  public Downloader(final int maxConnections, final long rangeSegmentSize) {
+    this(maxConnections, rangeSegmentSize, DEFAULT_READ_TIMEOUT);
+  }
+
+  /**
+   * constructor.
+   *
+   * @param maxConnections maximum number of parallel connections
+   * @param rangeSegmentSize size in bytes of a single Range request
+   * @param responseReadTimeout time to wait for a response or for data of a response body, a
+   *        stalled segment is retried
+   */
+  public Downloader(final int maxConnections, final long rangeSegmentSize,
+      final Duration responseReadTimeout) {
+    if (maxConnections < 1) {
+      throw new IllegalArgumentException("connections must be at least 1");
+    }
+    if (rangeSegmentSize < 1) {
+      throw new IllegalArgumentException("segment size must be at least 1");
+    }
+    this.connections = maxConnections;
+    this.segmentSize = rangeSegmentSize;
+    this.readTimeout = responseReadTimeout;
+  }
+
   /**
    * Download File.
    *
@@ -42,75 +151,727 @@ public class Downloader {
    * @throws IOException IOException
    */
   public void download(final Collection<String> urls, final Path toFile) throws IOException {
+    download(urls, toFile, null);
+  }
+
+  /**
+   * Download File. The file is downloaded to a ".part" file next to toFile, which is renamed to
+   * toFile only once the download is complete and its SHA-256 matches the expected checksum. When
+   * the server supports Range requests, completed ranges are recorded in a ".part.journal" file so
+   * an interrupted download is resumed instead of restarted.
+   *
+   * <p>
+   * The SHA-256 is computed while the file is downloaded and compared against the expected
+   * checksum, or if that is null against the checksum published as "&lt;url&gt;.sha256". The
+   * verified checksum is written to "&lt;toFile&gt;.sha256".
+   *
+   * @param urls {@link Collection} {@link String}
+   * @param toFile {@link Path}
+   * @param expectedSha256 expected hex SHA-256, null to use the published checksum
+   * @throws IOException IOException
+   */
+  public void download(final Collection<String> urls, final Path toFile,
+      final String expectedSha256) throws IOException {
+    download(List.of(), urls, toFile, expectedSha256);
+  }
+
+  /**
+   * Download File, preferring mirror urls. All urls are probed concurrently, but one of the urls
+   * is only used once none of the preferred urls exist. Both "http(s)://" and "file://" urls are
+   * supported.
+   *
+   * @param preferredUrls {@link Collection} {@link String} tried first (e.g. mirrors)
+   * @param urls {@link Collection} {@link String}
+   * @param toFile {@link Path}
+   * @param expectedSha256 expected hex SHA-256, null to use the published checksum
+   * @throws IOException IOException
+   */
+  public void download(final Collection<String> preferredUrls, final Collection<String> urls,
+      final Path toFile, final String expectedSha256) throws IOException {
 
-    boolean found = false;
     if (!toFile.toFile().exists()) {
 
-      for (final String url : urls) {
+      RemoteFile remote = probe(preferredUrls, urls);
 
-        if (urlExists(url)) {
-          found = true;
-          LOGGER.log(Level.INFO, "Downloading " + url + " to " + toFile);
-          Path parent = toFile.getParent();
-          if (parent != null) {
-            Files.createDirectories(parent);
-          }
+      if (remote == null) {
+        List<String> all = new ArrayList<>(preferredUrls);
+        all.addAll(urls);
+        throw new FileNotFoundException("Failed to download file from urls " + all);
+      }
+
+      CompletableFuture<String> publishedSha256 =
+          expectedSha256 == null ? fetchPublishedChecksum(remote.url)
+              : CompletableFuture.completedFuture(expectedSha256);
+
+      Path parent = toFile.getParent();
+      if (parent != null) {
+        Files.createDirectories(parent);
+      }
+
+      Path partFile = getPartFile(toFile);
+      String sha256;
+
+      if (remote.acceptRanges && remote.contentLength > 0) {
+        LOGGER.log(Level.INFO, "Downloading " + remote.url + " to " + toFile + " using up to "
+            + connections + " connections");
+        sha256 = downloadSegments(remote, partFile);
+      } else {
+        LOGGER.log(Level.INFO, "Downloading " + remote.url + " to " + toFile);
+        try {
+          sha256 = downloadStream(remote.url, partFile);
+        } catch (IOException e) {
+          Files.deleteIfExists(partFile);
+          throw e;
+        }
+      }
+
+      verify(remote.url, partFile, sha256, join(publishedSha256));
+
+      Files.writeString(getChecksumFile(toFile), sha256, StandardCharsets.UTF_8);
+      publish(partFile, toFile);
+
+    } else {
+      LOGGER.log(Level.INFO, "Downloaded file {0} already exists", toFile);
+    }
+  }
+
+  /**
+   * Download File as a single stream that is passed to a consumer (e.g. an extractor) while it is
+   * downloaded, so downloading and consuming overlap instead of running one after the other. The
+   * network is read on a separate thread into a bounded {@link ChunkPipe}, which also tees the
+   * bytes into the SHA-256 and, if toFile is not null, into a ".part" file that is published as
+   * toFile once the download is verified.
+   *
+   * <p>
+   * The checksum can only be verified once the whole stream is read, so the consumer must discard
+   * its output if this method throws.
+   *
+   * @param preferredUrls {@link Collection} {@link String} tried first (e.g. mirrors)
+   * @param urls {@link Collection} {@link String}
+   * @param toFile {@link Path} to persist the archive to, null to not persist it
+   * @param expectedSha256 expected hex SHA-256, null to use the published checksum
+   * @param consumer {@link StreamConsumer}
+   * @return {@link String} verified hex SHA-256
+   * @throws IOException IOException
+   */
+  public String downloadStreaming(final Collection<String> preferredUrls,
+      final Collection<String> urls, final Path toFile, final String expectedSha256,
+      final StreamConsumer consumer) throws IOException {
+
+    RemoteFile remote = probe(preferredUrls, urls);
 
-          URL u = new URL(url);
-          try (InputStream stream = u.openStream()) {
-            try (ReadableByteChannel readableByteChannel = Channels.newChannel(stream)) {
-              try (FileOutputStream fileOutputStream = new FileOutputStream(toFile.toFile())) {
-                try (FileChannel fileChannel = fileOutputStream.getChannel()) {
-                  fileChannel.transferFrom(readableByteChannel, 0, Long.MAX_VALUE);
-                }
-              }
+    if (remote == null) {
+      List<String> all = new ArrayList<>(preferredUrls);
+      all.addAll(urls);
+      throw new FileNotFoundException("Failed to download file from urls " + all);
+    }
+
+    CompletableFuture<String> publishedSha256 =
+        expectedSha256 == null ? fetchPublishedChecksum(remote.url)
+            : CompletableFuture.completedFuture(expectedSha256);
+
+    Path partFile = toFile != null ? getPartFile(toFile) : null;
+    if (partFile != null) {
+      Path parent = toFile.getParent();
+      if (parent != null) {
+        Files.createDirectories(parent);
+      }
+      Files.deleteIfExists(getJournalFile(partFile));
+    }
+
+    LOGGER.log(Level.INFO, "Streaming " + remote.url + (toFile != null ? " to " + toFile : ""));
+
+    ChunkPipe pipe = new ChunkPipe(PIPE_CHUNKS);
+    MessageDigest digest = SequentialDigest.sha256();
+    InputStream in = openStream(remote.url);
+
+    Thread producer = new Thread(() -> {
+      try (InputStream stream = in;
+          FileChannel channel = partFile != null ? FileChannel.open(partFile,
+              StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+              StandardOpenOption.WRITE) : null) {
+
+        byte[] data = new byte[BUFFER_SIZE];
+        int count;
+        while ((count = stream.read(data)) != -1) {
+          digest.update(data, 0, count);
+          if (channel != null) {
+            ByteBuffer buffer = ByteBuffer.wrap(data, 0, count);
+            while (buffer.hasRemaining()) {
+              channel.write(buffer);
             }
           }
+          pipe.write(data, count);
+        }
 
-          break;
+        if (channel != null) {
+          channel.force(true);
         }
+        pipe.finish();
+
+      } catch (IOException | InterruptedException | RuntimeException e) {
+        pipe.fail(e);
       }
+    }, "graalvm-download");
+    producer.setDaemon(true);
+    producer.start();
 
-      if (!found) {
-        throw new FileNotFoundException("Failed to download file from urls " + urls);
+    try {
+      consumer.accept(pipe);
+
+      // drain what the consumer did not read (e.g. archive padding) so the digest covers it all
+      byte[] skip = new byte[BUFFER_SIZE];
+      while (pipe.read(skip) != -1) {
+        // ignore
       }
 
-    } else {
-      LOGGER.log(Level.INFO, "Downloaded file {0} already exists", toFile);
+      producer.join();
+
+    } catch (IOException | RuntimeException e) {
+      producer.interrupt();
+      in.close();
+      if (partFile != null) {
+        Files.deleteIfExists(partFile);
+      }
+      throw e;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      producer.interrupt();
+      throw new IOException("Download of " + remote.url + " interrupted", e);
+    }
+
+    String sha256 = HexFormat.of().formatHex(digest.digest());
+
+    verify(remote.url, partFile, sha256, join(publishedSha256));
+
+    if (partFile != null) {
+      Files.writeString(getChecksumFile(toFile), sha256, StandardCharsets.UTF_8);
+      publish(partFile, toFile);
+    }
+
+    return sha256;
+  }
+
+  /**
+   * Get the file the verified SHA-256 of a downloaded file is written to.
+   *
+   * @param file {@link Path}
+   * @return {@link Path}
+   */
+  public static Path getChecksumFile(final Path file) {
+    return file.resolveSibling(file.getFileName() + ".sha256");
+  }
+
+  private void verify(final String url, final Path partFile, final String actual,
+      final String expected) throws IOException {
+
+    if (expected == null) {
+      LOGGER.log(Level.WARNING,
+          "No checksum available for " + url + ", downloaded SHA-256 is " + actual);
+
+    } else if (!expected.equalsIgnoreCase(actual)) {
+      if (partFile != null) {
+        Files.deleteIfExists(partFile);
+        Files.deleteIfExists(getJournalFile(partFile));
+      }
+      throw new IOException(
+          "Checksum mismatch for " + url + ", expected SHA-256 " + expected + " but was " + actual);
     }
   }
 
   /**
-   * Performs an HTTP HEAD request to determine if the given URL exists. Returns true if the
-   * response code is in the 2xx or 3xx range; false if it is 4xx/5xx or if any exception occurs
-   * (e.g., malformed URL, connection timeout).
+   * Fetch the checksum published next to a download as "&lt;url&gt;.sha256". Only a missing
+   * checksum file (404) means none is published, any other failure is retried and then fails the
+   * download, so a timeout or server error cannot skip the verification.
    *
-   * @param urlString the HTTP or HTTPS URL string to test
-   * @return true if the URL exists (i.e. server returns status &lt; 400), false otherwise
+   * @param url {@link String}
+   * @return {@link CompletableFuture} hex SHA-256, completes with null if none is published
    */
-  private static boolean urlExists(String urlString) {
-    HttpURLConnection connection = null;
+  private CompletableFuture<String> fetchPublishedChecksum(final String url) {
+
+    URI uri = URI.create(url + ".sha256");
+
+    if (isFile(url)) {
+      try {
+        Path file = Path.of(uri);
+        if (!Files.exists(file)) {
+          return CompletableFuture.completedFuture(null);
+        }
+        String checksum = parseChecksum(Files.readString(file, StandardCharsets.UTF_8));
+        return checksum != null ? CompletableFuture.completedFuture(checksum)
+            : CompletableFuture.failedFuture(new IOException("No SHA-256 found in " + uri));
+      } catch (IOException | IllegalArgumentException e) {
+        return CompletableFuture.failedFuture(new IOException("Unable to read " + uri, e));
+      }
+    }
+
+    return fetchPublishedChecksum(uri, CHECKSUM_ATTEMPTS);
+  }
+
+  private CompletableFuture<String> fetchPublishedChecksum(final URI uri, final int attempts) {
+
+    HttpRequest request = HttpRequest.newBuilder(uri).GET().timeout(TIMEOUT).build();
+    return CLIENT.sendAsync(request, BodyHandlers.ofString()).handle((response, e) -> {
+
+      if (response != null && response.statusCode() == HTTP_NOT_FOUND) {
+        return CompletableFuture.<String>completedFuture(null);
+      }
+
+      IOException error;
+      if (response == null) {
+        error = new IOException("Unable to fetch " + uri, e);
+      } else if (response.statusCode() >= HTTP_BAD_REQUEST) {
+        error = new IOException("Unable to fetch " + uri + ", HTTP " + response.statusCode());
+      } else {
+        String checksum = parseChecksum(response.body());
+        if (checksum != null) {
+          return CompletableFuture.completedFuture(checksum);
+        }
+        error = new IOException("No SHA-256 found in " + uri);
+      }
+
+      if (attempts > 1) {
+        LOGGER.log(Level.FINE, "Fetching " + uri + " failed, retrying", error);
+        return fetchPublishedChecksum(uri, attempts - 1);
+      }
+      return CompletableFuture.<String>failedFuture(error);
+    }).thenCompose(Function.identity());
+  }
+
+  /**
+   * Wait for the published checksum.
+   *
+   * @param checksum {@link CompletableFuture}
+   * @return {@link String} hex SHA-256, null if none is published
+   * @throws IOException if it could not be fetched
+   */
+  private static String join(final CompletableFuture<String> checksum) throws IOException {
     try {
-      URL url = new URL(urlString);
-      connection = (HttpURLConnection) url.openConnection();
-
-      // We only need the headers, not the body
-      connection.setRequestMethod("HEAD");
-      // Set timeouts (in milliseconds) so it won't hang forever
-      connection.setConnectTimeout(5000);
-      connection.setReadTimeout(5000);
-      connection.connect();
-
-      int responseCode = connection.getResponseCode();
-      // Treat any HTTP status < 400 as “exists”
-      return (responseCode < HttpURLConnection.HTTP_BAD_REQUEST);
-    } catch (IOException e) {
-      // IOException can mean the URL is malformed, host unreachable, etc.
-      return false;
+      return checksum.join();
+    } catch (CompletionException e) {
+      throw e.getCause() instanceof IOException ? (IOException) e.getCause()
+          : new IOException(e.getCause());
+    }
+  }
+
+  /**
+   * Parse a checksum file, either only the hex SHA-256 or "&lt;sha256&gt; &lt;filename&gt;".
+   *
+   * @param body {@link String}
+   * @return {@link String}, null if it does not contain a SHA-256
+   */
+  private static String parseChecksum(final String body) {
+    String checksum = body.trim().split("\\s+")[0];
+    return checksum.matches("[0-9a-fA-F]{64}") ? checksum : null;
+  }
+
+  private static boolean isFile(final String url) {
+    return url.regionMatches(true, 0, "file:", 0, "file:".length());
+  }
+
+  private static Path getPartFile(final Path toFile) {
+    return toFile.resolveSibling(toFile.getFileName() + ".part");
+  }
+
+  private static Path getJournalFile(final Path partFile) {
+    return partFile.resolveSibling(partFile.getFileName() + ".journal");
+  }
+
+  /**
+   * Atomically rename the completed partial file to its final name.
+   *
+   * @param partFile {@link Path}
+   * @param toFile {@link Path}
+   * @throws IOException IOException
+   */
+  private void publish(final Path partFile, final Path toFile) throws IOException {
+    try {
+      Files.move(partFile, toFile, StandardCopyOption.ATOMIC_MOVE);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(partFile, toFile, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  /**
+   * Download a URL using a single stream.
+   *
+   * @param url {@link String}
+   * @param toFile {@link Path}
+   * @return {@link String} hex SHA-256
+   * @throws IOException IOException
+   */
+  private String downloadStream(final String url, final Path toFile) throws IOException {
+
+    MessageDigest digest = SequentialDigest.sha256();
+
+    try (InputStream stream = new DigestInputStream(openStream(url), digest)) {
+
+      try (ReadableByteChannel readableByteChannel = Channels.newChannel(stream)) {
+        try (FileOutputStream fileOutputStream = new FileOutputStream(toFile.toFile())) {
+          try (FileChannel fileChannel = fileOutputStream.getChannel()) {
+            fileChannel.transferFrom(readableByteChannel, 0, Long.MAX_VALUE);
+            fileChannel.force(true);
+          }
+        }
+      }
+    }
+
+    return HexFormat.of().formatHex(digest.digest());
+  }
+
+  private InputStream openStream(final String url) throws IOException {
+
+    if (isFile(url)) {
+      return Files.newInputStream(Path.of(URI.create(url)));
+    }
+
+    HttpRequest request =
+        HttpRequest.newBuilder(URI.create(url)).GET().timeout(this.readTimeout).build();
+    HttpResponse<InputStream> response = send(request);
+    if (response.statusCode() >= HTTP_BAD_REQUEST) {
+      response.body().close();
+      throw new IOException("Failed to download " + url + ", got " + response.statusCode());
+    }
+
+    return response.body();
+  }
+
+  private HttpResponse<InputStream> send(final HttpRequest request) throws IOException {
+    try {
+      return CLIENT.send(request, info -> new ReadTimeoutInputStream(this.readTimeout));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Download of " + request.uri() + " interrupted", e);
+    }
+  }
+
+  /**
+   * Download a URL using parallel HTTP Range requests, each segment is written to its position in
+   * the partial file and recorded in the journal once it is durable. Segments already recorded in
+   * the journal are skipped.
+   *
+   * @param remote {@link RemoteFile}
+   * @param partFile {@link Path}
+   * @return {@link String} hex SHA-256
+   * @throws IOException IOException
+   */
+  private String downloadSegments(final RemoteFile remote, final Path partFile)
+      throws IOException {
+
+    final String url = remote.url;
+    final long contentLength = remote.contentLength;
+    List<Callable<Void>> tasks = new ArrayList<>();
+
+    Path journalFile = getJournalFile(partFile);
+    if (!Files.exists(partFile)) {
+      Files.deleteIfExists(journalFile);
+    }
+
+    try (DownloadJournal journal =
+        new DownloadJournal(journalFile, contentLength, remote.validator);
+        FileChannel channel =
+            FileChannel.open(partFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+
+      SequentialDigest digest = new SequentialDigest(channel);
+
+      if (journal.hasCompletedRanges()) {
+        LOGGER.log(Level.INFO, "Resuming download of " + url);
+        digest.completed(journal.getCompletedRanges());
+      } else {
+        channel.truncate(0);
+      }
+
+      for (long[] range : journal.getMissingRanges(contentLength, segmentSize)) {
+        final long first = range[0];
+        final long last = range[1];
+        // the first segment reuses the probed (possibly HTTP/2) connection, the others are
+        // requested over HTTP/1.1 so that each one gets its own TCP connection instead of being
+        // multiplexed onto a single one
+        final HttpClient.Version version = tasks.isEmpty() ? null : HttpClient.Version.HTTP_1_1;
+        tasks.add(() -> {
+          downloadSegmentWithRetry(url, first, last, version, channel);
+          channel.force(false);
+          journal.complete(first, last);
+          digest.completed(first, last);
+          return null;
+        });
+      }
+
+      if (!tasks.isEmpty()) {
+        runSegments(url, tasks);
+      }
+
+      if (channel.size() != contentLength) {
+        throw new IOException("Downloaded " + channel.size() + " bytes from " + url + ", expected "
+            + contentLength);
+      }
+
+      journal.delete();
+      return digest.finish(contentLength);
+    }
+  }
+
+  private void runSegments(final String url, final List<Callable<Void>> tasks)
+      throws IOException {
+
+    ExecutorService executor =
+        Executors.newFixedThreadPool(Math.min(connections, tasks.size()), r -> {
+          Thread t = new Thread(r, "graalvm-download");
+          t.setDaemon(true);
+          return t;
+        });
+
+    try {
+      List<Future<Void>> futures = new ArrayList<>();
+      for (Callable<Void> task : tasks) {
+        futures.add(executor.submit(task));
+      }
+
+      for (Future<Void> future : futures) {
+        future.get();
+      }
+
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Download of " + url + " interrupted", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      throw cause instanceof IOException ? (IOException) cause
+          : new IOException(cause.getMessage(), cause);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private void downloadSegmentWithRetry(final String url, final long first, final long last,
+      final HttpClient.Version version, final FileChannel channel) throws IOException {
+
+    IOException error = null;
+    for (int attempt = 0; attempt < SEGMENT_ATTEMPTS; attempt++) {
+      try {
+        downloadSegment(url, first, last, version, channel);
+        return;
+      } catch (IOException e) {
+        LOGGER.log(Level.FINE, "Segment " + first + "-" + last + " failed, retrying", e);
+        error = e;
+      }
+    }
+
+    throw error;
+  }
+
+  private void downloadSegment(final String url, final long first, final long last,
+      final HttpClient.Version version, final FileChannel channel) throws IOException {
+
+    HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(url)).GET()
+        .header("Range", "bytes=" + first + "-" + last).timeout(this.readTimeout);
+    if (version != null) {
+      builder.version(version);
+    }
+
+    HttpResponse<InputStream> response = send(builder.build());
+
+    try (InputStream in = response.body()) {
+
+      if (response.statusCode() != HTTP_PARTIAL) {
+        throw new IOException("Expected HTTP 206 for range " + first + "-" + last + " of " + url
+            + ", got " + response.statusCode());
+      }
+
+      long position = first;
+      byte[] data = new byte[BUFFER_SIZE];
+      int count;
+      while (position <= last && (count = in.read(data)) != -1) {
+        ByteBuffer buffer = ByteBuffer.wrap(data, 0, count);
+        while (buffer.hasRemaining()) {
+          position += channel.write(buffer, position);
+        }
+      }
+
+      if (position != last + 1) {
+        throw new IOException("Incomplete range " + first + "-" + last + " of " + url);
+      }
+    }
+  }
+
+  /**
+   * Probes all candidate URLs concurrently with HTTP HEAD requests on the shared
+   * {@link HttpClient}. Preferred URLs (mirrors) are ordered: the first of them, in list order, to
+   * answer with a status &lt; 400 wins, once the ones before it are known to be missing. Only once
+   * all preferred URLs are missing does the fastest other URL to answer win. Outstanding probes are
+   * cancelled as soon as there is a winner.
+   *
+   * @param preferredUrls {@link Collection} {@link String}
+   * @param urls {@link Collection} {@link String}
+   * @return {@link RemoteFile}, null if none of the urls exist
+   * @throws IOException IOException
+   */
+  private RemoteFile probe(final Collection<String> preferredUrls, final Collection<String> urls)
+      throws IOException {
+
+    List<CompletableFuture<?>> requests = new ArrayList<>();
+    List<CompletableFuture<RemoteFile>> preferred = probeAll(preferredUrls, requests);
+    List<CompletableFuture<RemoteFile>> others = probeAll(urls, requests);
+
+    CompletableFuture<RemoteFile> fastest = new CompletableFuture<>();
+    others.forEach(p -> p.thenAccept(remote -> {
+      if (remote.exists) {
+        fastest.complete(remote);
+      }
+    }));
+    CompletableFuture.allOf(others.toArray(new CompletableFuture<?>[0]))
+        .whenComplete((v, e) -> fastest.complete(null));
+
+    CompletableFuture<RemoteFile> winner = firstInOrder(preferred, 0).thenCompose(
+        remote -> remote != null ? CompletableFuture.completedFuture(remote) : fastest);
+
+    try {
+      return winner.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Probing of " + urls + " interrupted", e);
+    } catch (ExecutionException e) {
+      throw new IOException(e.getCause().getMessage(), e.getCause());
     } finally {
-      if (connection != null) {
-        connection.disconnect();
+      requests.forEach(r -> r.cancel(true));
+    }
+  }
+
+  /**
+   * The first probe, in list order, whose URL exists.
+   *
+   * @param probes {@link List} {@link CompletableFuture}
+   * @param index index of the first probe to consider
+   * @return {@link CompletableFuture}, completed with null if none of the URLs exist
+   */
+  private static CompletableFuture<RemoteFile> firstInOrder(
+      final List<CompletableFuture<RemoteFile>> probes, final int index) {
+
+    if (index >= probes.size()) {
+      return CompletableFuture.completedFuture(null);
+    }
+
+    return probes.get(index).thenCompose(remote -> remote.exists
+        ? CompletableFuture.completedFuture(remote) : firstInOrder(probes, index + 1));
+  }
+
+  private List<CompletableFuture<RemoteFile>> probeAll(final Collection<String> urls,
+      final List<CompletableFuture<?>> requests) {
+
+    List<CompletableFuture<RemoteFile>> probes = new ArrayList<>();
+
+    for (String url : urls) {
+
+      if (isFile(url)) {
+        probes.add(CompletableFuture.completedFuture(toLocalFile(url)));
+        continue;
       }
+
+      HttpRequest request = headRequest(url);
+      CompletableFuture<HttpResponse<Void>> future =
+          request != null ? CLIENT.sendAsync(request, BodyHandlers.discarding())
+              : CompletableFuture.failedFuture(new IllegalArgumentException(url));
+      requests.add(future);
+
+      probes.add(future.handle((response, e) -> toRemoteFile(url, response)));
+    }
+
+    return probes;
+  }
+
+  /**
+   * Converts a "file://" url to a {@link RemoteFile}, local files are always copied as a single
+   * stream.
+   *
+   * @param url {@link String}
+   * @return {@link RemoteFile}
+   */
+  private static RemoteFile toLocalFile(final String url) {
+    try {
+      Path file = Path.of(URI.create(url));
+      return new RemoteFile(url, Files.isRegularFile(file), false, Files.size(file), "");
+    } catch (IOException | IllegalArgumentException e) {
+      return new RemoteFile(url, false, false, -1, "");
+    }
+  }
+
+  /**
+   * Creates an HTTP HEAD request, we only need the headers, not the body.
+   *
+   * @param url {@link String}
+   * @return {@link HttpRequest}, null if the url is malformed
+   */
+  private static HttpRequest headRequest(final String url) {
+    try {
+      return HttpRequest.newBuilder(URI.create(url))
+          .method("HEAD", HttpRequest.BodyPublishers.noBody()).timeout(TIMEOUT).build();
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Converts the response of an HTTP HEAD request to a {@link RemoteFile}. The URL exists if the
+   * response code is in the 2xx or 3xx range; it does not if it is 4xx/5xx or if the request failed
+   * (e.g., host unreachable, connection timeout).
+   *
+   * @param url the HTTP or HTTPS URL string tested
+   * @param response {@link HttpResponse}, null if the request failed
+   * @return {@link RemoteFile}
+   */
+  private static RemoteFile toRemoteFile(final String url, final HttpResponse<Void> response) {
+
+    if (response == null) {
+      return new RemoteFile(url, false, false, -1, "");
+    }
+
+    HttpHeaders headers = response.headers();
+
+    // Treat any HTTP status < 400 as “exists”
+    boolean exists = response.statusCode() < HTTP_BAD_REQUEST;
+    boolean acceptRanges =
+        "bytes".equalsIgnoreCase(headers.firstValue("Accept-Ranges").orElse(null));
+    long contentLength = headers.firstValueAsLong("Content-Length").orElse(-1);
+    String validator =
+        headers.firstValue("ETag").or(() -> headers.firstValue("Last-Modified")).orElse("");
+
+    return new RemoteFile(url, exists, acceptRanges, contentLength,
+        validator.replaceAll("\\s", ""));
+  }
+
+  /** Consumes a downloaded stream while it is downloaded. */
+  @FunctionalInterface
+  public interface StreamConsumer {
+    /**
+     * Consume stream.
+     *
+     * @param in {@link InputStream}
+     * @throws IOException IOException
+     */
+    void accept(InputStream in) throws IOException;
+  }
+
+  /** Result of probing a remote file. */
+  private static final class RemoteFile {
+    /** Url. */
+    private final String url;
+    /** Whether the file exists. */
+    private final boolean exists;
+    /** Whether the server advertises "Accept-Ranges: bytes". */
+    private final boolean acceptRanges;
+    /** Content Length, -1 if unknown. */
+    private final long contentLength;
+    /** ETag or Last-Modified of the remote file, empty if unknown. */
+    private final String validator;
+
+    private RemoteFile(final String fileUrl, final boolean fileExists, final boolean ranges,
+        final long length, final String remoteValidator) {
+      this.url = fileUrl;
+      this.exists = fileExists;
+      this.acceptRanges = ranges;
+      this.contentLength = length;
+      this.validator = remoteValidator;
     }
   }
 }
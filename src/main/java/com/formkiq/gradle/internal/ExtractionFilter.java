@@ -0,0 +1,155 @@
+/**
+ * Copyright [2020] FormKiQ Inc. Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the License
+ * at
+ *
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.formkiq.gradle.internal;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Selects which archive entries are extracted and counts the entries and bytes that are skipped.
+ * Entry names are matched relative to the root of the GraalVM distribution, i.e. without the
+ * top-level directory and, on macOS, without "Contents/Home".
+ */
+public class ExtractionFilter {
+
+  /** Profile extracting every entry. */
+  public static final String PROFILE_FULL = "full";
+
+  /** Profile extracting only what the native-image driver and builder use. */
+  public static final String PROFILE_NATIVE_IMAGE = "native-image";
+
+  /**
+   * Directories used by native-image. Legacy vm-22.x distributions load the Graal compiler from
+   * "lib/jvmci" and need "lib/installer" for 'gu install native-image'.
+   */
+  private static final List<String> NATIVE_IMAGE_DIRECTORIES = List.of("bin/", "conf/",
+      "include/", "lib/svm/", "lib/static/", "lib/server/", "lib/security/", "lib/graalvm/",
+      "lib/truffle/", "lib/jfr/", "lib/jvmci/", "lib/installer/");
+
+  /** Files directly in "lib/" that native-image does not use. */
+  private static final Set<String> NATIVE_IMAGE_EXCLUDED_LIB_FILES = Set.of("src.zip", "ct.sym");
+
+  /** macOS distribution root. */
+  private static final String MACOS_HOME = "Contents/Home/";
+
+  /** Profile. */
+  private final String profile;
+
+  /** Number of skipped entries. */
+  private final AtomicLong skippedEntries = new AtomicLong();
+
+  /** Number of skipped bytes. */
+  private final AtomicLong skippedBytes = new AtomicLong();
+
+  /**
+   * constructor.
+   *
+   * @param extractionProfile {@link #PROFILE_FULL} or {@link #PROFILE_NATIVE_IMAGE}
+   */
+  public ExtractionFilter(final String extractionProfile) {
+    if (!PROFILE_FULL.equals(extractionProfile)
+        && !PROFILE_NATIVE_IMAGE.equals(extractionProfile)) {
+      throw new IllegalArgumentException("Unknown extraction profile " + extractionProfile);
+    }
+    this.profile = extractionProfile;
+  }
+
+  /**
+   * Filter extracting every entry.
+   *
+   * @return {@link ExtractionFilter}
+   */
+  public static ExtractionFilter full() {
+    return new ExtractionFilter(PROFILE_FULL);
+  }
+
+  /**
+   * Whether to extract an entry, skipped entries are counted.
+   *
+   * @param name entry name
+   * @param size entry size, -1 if unknown
+   * @return boolean
+   */
+  public boolean include(final String name, final long size) {
+
+    boolean include = PROFILE_FULL.equals(this.profile) || includeNativeImage(name);
+
+    if (!include) {
+      this.skippedEntries.incrementAndGet();
+      this.skippedBytes.addAndGet(Math.max(size, 0));
+    }
+
+    return include;
+  }
+
+  private static boolean includeNativeImage(final String name) {
+
+    String path = name.replace('\\', '/');
+    int root = path.indexOf('/');
+    path = root >= 0 ? path.substring(root + 1) : "";
+
+    if (path.startsWith(MACOS_HOME)) {
+      path = path.substring(MACOS_HOME.length());
+    } else if (path.endsWith("/") && MACOS_HOME.startsWith(path)) {
+      return true;
+    }
+
+    if (path.isEmpty() || "release".equals(path)) {
+      return true;
+    }
+
+    for (String directory : NATIVE_IMAGE_DIRECTORIES) {
+      if (path.startsWith(directory)) {
+        return true;
+      }
+    }
+
+    if (path.startsWith("lib/")) {
+      String file = path.substring("lib/".length());
+      return !file.isEmpty() && file.indexOf('/') < 0
+          && !NATIVE_IMAGE_EXCLUDED_LIB_FILES.contains(file);
+    }
+
+    return false;
+  }
+
+  /**
+   * Get Profile.
+   *
+   * @return {@link String}
+   */
+  public String getProfile() {
+    return this.profile;
+  }
+
+  /**
+   * Get Number of skipped entries.
+   *
+   * @return long
+   */
+  public long getSkippedEntries() {
+    return this.skippedEntries.get();
+  }
+
+  /**
+   * Get Number of skipped bytes.
+   *
+   * @return long
+   */
+  public long getSkippedBytes() {
+    return this.skippedBytes.get();
+  }
+}
@@ -0,0 +1,244 @@
+/**
+ * Copyright [2020] FormKiQ Inc. Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the License
+ * at
+ *
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.formkiq.gradle.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * Manifest written once an archive is completely extracted. It records the SHA-256 of the archive,
+ * the number of files and their total size, and the size of a few sentinel files (the first, last
+ * and largest file). Verifying it reads the manifest and walks the directory's file attributes,
+ * without reading any file, so an unchanged extraction is confirmed without reading the archive,
+ * while a missing, extra or truncated file is still detected.
+ */
+public class ExtractionManifest {
+
+  /** Archive SHA-256 key. */
+  private static final String ARCHIVE_SHA256 = "archive.sha256";
+
+  /** File count key. */
+  private static final String FILES = "files";
+
+  /** Total size key. */
+  private static final String SIZE = "size";
+
+  /** Sentinel key prefix. */
+  private static final String SENTINEL = "sentinel.";
+
+  /** Archive SHA-256, null if unknown. */
+  private final String archiveSha256;
+
+  /** Number of files. */
+  private final long files;
+
+  /** Total size of the files. */
+  private final long size;
+
+  /** Sentinel file relative paths and sizes. */
+  private final Map<String, Long> sentinels;
+
+  private ExtractionManifest(final String sha256, final long fileCount, final long totalSize,
+      final Map<String, Long> sentinelFiles) {
+    this.archiveSha256 = sha256;
+    this.files = fileCount;
+    this.size = totalSize;
+    this.sentinels = sentinelFiles;
+  }
+
+  /**
+   * Create the manifest of an extracted directory.
+   *
+   * @param directory {@link Path} extracted directory
+   * @param archiveSha256 SHA-256 of the archive, null if unknown
+   * @return {@link ExtractionManifest}
+   * @throws IOException IOException
+   */
+  public static ExtractionManifest create(final Path directory, final String archiveSha256)
+      throws IOException {
+
+    TreeMap<String, Long> all = regularFiles(directory);
+
+    Map<String, Long> sentinels = new TreeMap<>();
+    if (!all.isEmpty()) {
+      sentinels.put(all.firstKey(), all.firstEntry().getValue());
+      sentinels.put(all.lastKey(), all.lastEntry().getValue());
+      all.entrySet().stream().max(Map.Entry.comparingByValue())
+          .ifPresent(e -> sentinels.put(e.getKey(), e.getValue()));
+    }
+
+    long total = all.values().stream().mapToLong(Long::longValue).sum();
+    return new ExtractionManifest(archiveSha256, all.size(), total, sentinels);
+  }
+
+  /**
+   * Get the regular files of a directory and their sizes. Symbolic links are not followed nor
+   * counted, so the manifest and its verification count the same files.
+   *
+   * @param directory {@link Path}
+   * @return {@link TreeMap} relative path and size
+   * @throws IOException IOException
+   */
+  private static TreeMap<String, Long> regularFiles(final Path directory) throws IOException {
+
+    TreeMap<String, Long> files = new TreeMap<>();
+    Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) {
+        if (attrs.isRegularFile()) {
+          files.put(directory.relativize(file).toString().replace('\\', '/'),
+              Long.valueOf(attrs.size()));
+        }
+        return FileVisitResult.CONTINUE;
+      }
+    });
+
+    return files;
+  }
+
+  /**
+   * Read a manifest.
+   *
+   * @param file {@link Path}
+   * @return {@link ExtractionManifest}, null if it does not exist or cannot be read
+   */
+  public static ExtractionManifest read(final Path file) {
+
+    if (!Files.isRegularFile(file)) {
+      return null;
+    }
+
+    Properties props = new Properties();
+    try (InputStream in = Files.newInputStream(file)) {
+      props.load(in);
+
+      Map<String, Long> sentinels = new TreeMap<>();
+      for (String name : props.stringPropertyNames()) {
+        if (name.startsWith(SENTINEL)) {
+          sentinels.put(name.substring(SENTINEL.length()),
+              Long.valueOf(props.getProperty(name)));
+        }
+      }
+
+      return new ExtractionManifest(props.getProperty(ARCHIVE_SHA256),
+          Long.parseLong(props.getProperty(FILES)), Long.parseLong(props.getProperty(SIZE)),
+          sentinels);
+
+    } catch (IOException | RuntimeException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Write the manifest.
+   *
+   * @param file {@link Path}
+   * @throws IOException IOException
+   */
+  public void write(final Path file) throws IOException {
+
+    Properties props = new Properties();
+    if (this.archiveSha256 != null) {
+      props.setProperty(ARCHIVE_SHA256, this.archiveSha256);
+    }
+    props.setProperty(FILES, String.valueOf(this.files));
+    props.setProperty(SIZE, String.valueOf(this.size));
+    this.sentinels.forEach((k, v) -> props.setProperty(SENTINEL + k, String.valueOf(v)));
+
+    try (OutputStream out = Files.newOutputStream(file)) {
+      props.store(out, "graalvm-native-plugin extraction manifest");
+    }
+  }
+
+  /**
+   * Verify the extracted directory still matches the manifest.
+   *
+   * @param directory {@link Path} extracted directory
+   * @param expectedArchiveSha256 SHA-256 of the archive, null to not verify it
+   * @return boolean
+   */
+  public boolean verify(final Path directory, final String expectedArchiveSha256) {
+
+    if (expectedArchiveSha256 != null
+        && !expectedArchiveSha256.equalsIgnoreCase(this.archiveSha256)) {
+      return false;
+    }
+
+    if (this.files > 0 && this.sentinels.isEmpty()) {
+      return false;
+    }
+
+    Map<String, Long> files;
+    try {
+      files = regularFiles(directory);
+    } catch (IOException e) {
+      return false;
+    }
+
+    long total = files.values().stream().mapToLong(Long::longValue).sum();
+    if (files.size() != this.files || total != this.size) {
+      return false;
+    }
+
+    for (Map.Entry<String, Long> e : this.sentinels.entrySet()) {
+      Path file = directory.resolve(e.getKey());
+      try {
+        if (!Files.isRegularFile(file) || Files.size(file) != e.getValue().longValue()) {
+          return false;
+        }
+      } catch (IOException ex) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Get Archive SHA-256.
+   *
+   * @return {@link String}
+   */
+  public String getArchiveSha256() {
+    return this.archiveSha256;
+  }
+
+  /**
+   * Get Number of files.
+   *
+   * @return long
+   */
+  public long getFiles() {
+    return this.files;
+  }
+
+  /**
+   * Get Total size of the files.
+   *
+   * @return long
+   */
+  public long getSize() {
+    return this.size;
+  }
+}
@@ -15,17 +15,20 @@
 package com.formkiq.gradle.internal;
 
 import com.formkiq.gradle.GraalvmClasspathArguments;
-import com.formkiq.gradle.GraalvmNativeExtension;
 import com.formkiq.gradle.GraalvmParameterToStrings;
+import com.formkiq.gradle.GraalvmResourceArguments;
+import com.formkiq.gradle.NativeImageSpec;
 import com.formkiq.gradle.services.RuntimeDependenciesDecompress;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.stream.Stream;
 import org.apache.tools.ant.helper.DefaultExecutor;
 import org.gradle.api.file.ConfigurableFileCollection;
 import org.gradle.internal.os.OperatingSystem;
@@ -37,16 +40,53 @@ public class NativeImageExecutor {
   /** Graalvm Java Main. */
   public static final String GRAALVM_JAVA_MAIN = "java/main";
 
-  /** {@link GraalvmNativeExtension}. */
-  private final GraalvmNativeExtension extension;
+  /** Directory native-image writes its reports to, relative to its working directory. */
+  public static final String REPORTS = "reports";
+
+  /** {@link NativeImageSpec}. */
+  private final NativeImageSpec spec;
+
+  /** {@link GraalvmResourceArguments}, null to leave heap and threads to native-image. */
+  private final GraalvmResourceArguments resources;
+
+  /** Directory path-bearing options are resolved against, null to pass them as configured. */
+  private final Path baseDir;
+
+  /**
+   * constructor.
+   *
+   * @param nativeImageSpec {@link NativeImageSpec}
+   */
+  public NativeImageExecutor(final NativeImageSpec nativeImageSpec) {
+    this(nativeImageSpec, null);
+  }
 
   /**
    * constructor.
    *
-   * @param ext {@link GraalvmNativeExtension}
+   * @param nativeImageSpec {@link NativeImageSpec}
+   * @param resourceArguments {@link GraalvmResourceArguments}, null to leave heap and threads to
+   *        native-image
    */
-  public NativeImageExecutor(final GraalvmNativeExtension ext) {
-    this.extension = ext;
+  public NativeImageExecutor(final NativeImageSpec nativeImageSpec,
+      final GraalvmResourceArguments resourceArguments) {
+    this(nativeImageSpec, resourceArguments, null);
+  }
+
+  /**
+   * constructor.
+   *
+   * @param nativeImageSpec {@link NativeImageSpec}
+   * @param resourceArguments {@link GraalvmResourceArguments}, null to leave heap and threads to
+   *        native-image
+   * @param baseDirectory {@link Path} configuration files and additional classpaths are resolved
+   *        against when native-image runs, null to pass them as configured
+   */
+  public NativeImageExecutor(final NativeImageSpec nativeImageSpec,
+      final GraalvmResourceArguments resourceArguments, final Path baseDirectory) {
+    this.spec = nativeImageSpec;
+    this.resources = resourceArguments;
+    this.baseDir = baseDirectory;
   }
 
   /**
@@ -57,74 +97,88 @@ public class NativeImageExecutor {
    * @param buildDir {@link Path}
    * @param graalvmBaseDir {@link File}
    * @param outputDir {@link File}
+   * @param classpathJars {@link List} {@link File} jars, null to use the exploded classpath
+   * @return {@link NativeImageStatistics}
+   * @throws IOException IOException
    */
-  public void buildGraalvmImage(final ExecOperations execOperations, final String projectName,
-      final Path buildDir, final File graalvmBaseDir, File outputDir) {
-
-    List<String> args = getBuildGraalvmImageArguments(projectName, buildDir);
-
-    execOperations.exec(arg0 -> {
-      String executeable =
-          OperatingSystem.current().isWindows() ? "native-image.cmd" : "native-image";
-      arg0.setCommandLine(
-          Paths.get(getGraalBin(graalvmBaseDir).toAbsolutePath().toString(), "/" + executeable)
-              .toFile());
-      arg0.args(args);
-      arg0.setWorkingDir(outputDir);
-    });
-  }
+  public NativeImageStatistics buildGraalvmImage(final ExecOperations execOperations,
+      final String projectName, final Path buildDir, final File graalvmBaseDir, File outputDir,
+      final List<File> classpathJars) throws IOException {
 
-  /**
-   * Build Graalvm classes folder.
-   *
-   * @param buildDir {@link Path}
-   * @param runtimeClasspath {@link ConfigurableFileCollection}
-   */
-  public void buildGraalvmJavaMain(final Path buildDir,
-      final ConfigurableFileCollection runtimeClasspath) {
-    new RuntimeDependenciesDecompress().apply(buildDir, runtimeClasspath);
+    List<String> args = new ArrayList<>();
+    if (this.resources != null) {
+      args.addAll(this.resources.apply(this.spec));
+    }
+    args.addAll(getBuildGraalvmImageArguments(projectName, buildDir, classpathJars));
+
+    try (NativeImageStatistics statistics = new NativeImageStatistics(System.out)) {
+      execOperations.exec(arg0 -> {
+        arg0.setCommandLine(Paths.get(getGraalBin(graalvmBaseDir).toAbsolutePath().toString(),
+            "/" + getNativeImageExecutable()).toFile());
+        arg0.args(args);
+        arg0.setWorkingDir(outputDir);
+        arg0.setStandardOutput(statistics);
+      });
+      return statistics;
+    }
   }
 
   List<String> getBuildGraalvmImageArguments(final String projectName, final Path buildDir) {
+    return getBuildGraalvmImageArguments(projectName, buildDir, null);
+  }
+
+  List<String> getBuildGraalvmImageArguments(final String projectName, final Path buildDir,
+      final List<File> classpathJars) {
 
-    List<String> args = new ArrayList<>(new GraalvmParameterToStrings().apply(this.extension));
+    List<String> args =
+        new ArrayList<>(new GraalvmParameterToStrings(this.baseDir).apply(this.spec));
 
-    String executableName = this.extension.getOutputFileName();
+    String executableName = this.spec.getOutputFileName();
 
     if (executableName != null) {
       args.add("-H:Name=" + getExecutableName(projectName));
     }
 
-    args.addAll(new GraalvmClasspathArguments(buildDir).apply(this.extension));
+    args.addAll(new GraalvmClasspathArguments(buildDir, classpathJars, this.baseDir)
+        .apply(this.spec));
 
-    args.add(this.extension.getMainClassName().get());
+    args.add(this.spec.getMainClassName());
 
     return args;
   }
 
   private String getExecutableName(final String projectName) {
-    return this.extension.getOutputFileName() != null ? this.extension.getOutputFileName()
+    return this.spec.getOutputFileName() != null ? this.spec.getOutputFileName()
         : projectName;
   }
 
-  private Path getGraalBin(final File graalvmBaseDir) {
+  private static String getNativeImageExecutable() {
+    return OperatingSystem.current().isWindows() ? "native-image.cmd" : "native-image";
+  }
+
+  private static Path getGraalBin(final File graalvmBaseDir) {
     return OperatingSystem.current().isMacOsX()
         ? Path.of(graalvmBaseDir.getAbsolutePath(), "Contents/Home/bin")
         : Path.of(graalvmBaseDir.getAbsolutePath(), "bin");
   }
 
   /**
-   * Run 'gu' insallation.
+   * Run 'gu' insallation, skipped when the toolchain already contains native-image.
    *
    * @param execOperations {@link ExecOperations}
    * @param graalvmBaseDir {@link File}
    * @throws IOException IOException
    */
-  public void runGuInstallation(final ExecOperations execOperations, final Path graalvmBaseDir)
-      throws IOException {
+  public static void runGuInstallation(final ExecOperations execOperations,
+      final Path graalvmBaseDir) throws IOException {
+
+    Path bin = getGraalBin(graalvmBaseDir.toFile());
+    if (bin.resolve(getNativeImageExecutable()).toFile().exists()) {
+      return;
+    }
 
     String guExecutable = OperatingSystem.current().isWindows() ? "gu.cmd" : "gu";
-    Path gu = getGraalBin(graalvmBaseDir.toFile()).resolve(guExecutable);
+    Path gu = bin.resolve(guExecutable);
 
     if (gu.toFile().exists()) {
       execOperations.exec(arg0 -> {
@@ -135,7 +189,8 @@ public class NativeImageExecutor {
   }
 
   /**
-   * Run Native Image Command.
+   * Run Native Image Command. With the "jars" classpath mode the runtime classpath jars are passed
+   * to native-image directly, otherwise the classpath exploded by the graalvmClasspath task is.
    *
    * @param execOperations {@link ExecOperations}
    * @param projectName project name
@@ -143,14 +198,58 @@ public class NativeImageExecutor {
    * @param graalvmBaseDir {@link Files}
    * @param outputDir {@link File}
    * @param runtimeClasspath {@link ConfigurableFileCollection}
+   * @return {@link NativeImageStatistics}
    * @throws IOException IOException
    */
-  public void runNativeImage(final ExecOperations execOperations, final String projectName,
-      final Path buildDir, final File graalvmBaseDir, File outputDir,
+  public NativeImageStatistics runNativeImage(final ExecOperations execOperations,
+      final String projectName, final Path buildDir, final File graalvmBaseDir, File outputDir,
       final ConfigurableFileCollection runtimeClasspath) throws IOException {
 
-    buildGraalvmJavaMain(buildDir, runtimeClasspath);
+    List<File> classpathJars = null;
+
+    if (GraalvmClasspathArguments.MODE_JARS.equals(this.spec.getClasspathMode())) {
+      classpathJars = RuntimeDependenciesDecompress.getClasspathJars(buildDir, runtimeClasspath);
+    }
 
-    buildGraalvmImage(execOperations, projectName, buildDir, graalvmBaseDir, outputDir);
+    Files.createDirectories(outputDir.toPath());
+    return buildGraalvmImage(execOperations, projectName, buildDir, graalvmBaseDir, outputDir,
+        classpathJars);
+  }
+
+  /**
+   * Move what native-image wrote to its working directory to the task outputs: the reports
+   * directory to reportsDir and everything else, i.e. the binary and the libraries it needs, to
+   * outputDir.
+   *
+   * @param workingDir {@link Path} native-image working directory
+   * @param outputDir {@link Path}
+   * @param reportsDir {@link Path}
+   * @throws IOException IOException
+   */
+  public static void collectOutputs(final Path workingDir, final Path outputDir,
+      final Path reportsDir) throws IOException {
+
+    Files.createDirectories(outputDir);
+    Files.createDirectories(reportsDir);
+
+    List<Path> files;
+    try (Stream<Path> stream = Files.list(workingDir)) {
+      files = stream.toList();
+    }
+
+    for (Path file : files) {
+      if (REPORTS.equals(file.getFileName().toString()) && Files.isDirectory(file)) {
+        try (Stream<Path> stream = Files.list(file)) {
+          for (Path report : stream.toList()) {
+            Files.move(report, reportsDir.resolve(report.getFileName().toString()),
+                StandardCopyOption.REPLACE_EXISTING);
+          }
+        }
+        Files.delete(file);
+      } else {
+        Files.move(file, outputDir.resolve(file.getFileName().toString()),
+            StandardCopyOption.REPLACE_EXISTING);
+      }
+    }
   }
 }
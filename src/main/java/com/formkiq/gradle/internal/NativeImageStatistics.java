@@ -0,0 +1,135 @@
+/**
+ * Copyright [2020] FormKiQ Inc. Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the License
+ * at
+ *
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.formkiq.gradle.internal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * {@link OutputStream} forwarding native-image's output and picking the peak RSS and CPU load from
+ * its build summary, e.g. "Peak RSS: 3.03GB | CPU load: 7.66".
+ */
+public class NativeImageStatistics extends OutputStream {
+
+  /** Peak RSS pattern. */
+  private static final Pattern PEAK_RSS = Pattern.compile("Peak RSS: ([0-9.]+)\\s*([KMG]?B)");
+
+  /** CPU load pattern. */
+  private static final Pattern CPU_LOAD = Pattern.compile("CPU load: ([0-9.]+)");
+
+  /** Maximum line length kept. */
+  private static final int MAX_LINE = 4096;
+
+  /** Forwarded to. */
+  private final OutputStream delegate;
+
+  /** Current line. */
+  private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+  /** Peak RSS in bytes, -1 if not reported. */
+  private long peakRss = -1;
+
+  /** CPU load, -1 if not reported. */
+  private double cpuLoad = -1;
+
+  /**
+   * constructor.
+   *
+   * @param out {@link OutputStream} to forward the output to
+   */
+  public NativeImageStatistics(final OutputStream out) {
+    this.delegate = out;
+  }
+
+  @Override
+  public void write(final int b) throws IOException {
+    this.delegate.write(b);
+
+    if (b == '\n') {
+      parse(this.line.toString(StandardCharsets.UTF_8));
+      this.line.reset();
+    } else if (this.line.size() < MAX_LINE) {
+      this.line.write(b);
+    }
+  }
+
+  @Override
+  public void write(final byte[] b, final int off, final int len) throws IOException {
+    for (int i = off; i < off + len; i++) {
+      write(b[i]);
+    }
+  }
+
+  @Override
+  public void flush() throws IOException {
+    this.delegate.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    parse(this.line.toString(StandardCharsets.UTF_8));
+    this.line.reset();
+    this.delegate.flush();
+  }
+
+  private void parse(final String text) {
+
+    Matcher rss = PEAK_RSS.matcher(text);
+    if (rss.find()) {
+      double value = Double.parseDouble(rss.group(1));
+      switch (rss.group(2)) {
+        case "GB":
+          value *= 1024 * 1024 * 1024;
+          break;
+        case "MB":
+          value *= 1024 * 1024;
+          break;
+        case "KB":
+          value *= 1024;
+          break;
+        default:
+          break;
+      }
+      this.peakRss = (long) value;
+    }
+
+    Matcher cpu = CPU_LOAD.matcher(text);
+    if (cpu.find()) {
+      this.cpuLoad = Double.parseDouble(cpu.group(1));
+    }
+  }
+
+  /**
+   * Get Peak RSS in bytes.
+   *
+   * @return long, -1 if not reported
+   */
+  public long getPeakRss() {
+    return this.peakRss;
+  }
+
+  /**
+   * Get CPU load, the average number of busy CPUs.
+   *
+   * @return double, -1 if not reported
+   */
+  public double getCpuLoad() {
+    return this.cpuLoad;
+  }
+}
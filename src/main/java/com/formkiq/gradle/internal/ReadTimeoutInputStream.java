@@ -0,0 +1,180 @@
+/**
+ * Copyright [2020] FormKiQ Inc. Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the License
+ * at
+ *
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.formkiq.gradle.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link HttpResponse.BodySubscriber} exposing the response body as an {@link InputStream}, like
+ * {@link HttpResponse.BodySubscribers#ofInputStream()}, that fails a read with an
+ * {@link HttpTimeoutException} once no data was received for the read timeout. The request
+ * timeout only covers the response headers, so without it a stalled body blocks forever.
+ */
+public class ReadTimeoutInputStream extends InputStream
+    implements HttpResponse.BodySubscriber<InputStream> {
+
+  /** End of stream marker. */
+  private static final List<ByteBuffer> END = List.of();
+
+  /** Received buffers, one item is requested at a time. */
+  private final BlockingQueue<List<ByteBuffer>> queue = new LinkedBlockingQueue<>();
+
+  /** Read timeout. */
+  private final Duration timeout;
+
+  /** {@link Flow.Subscription}. */
+  private volatile Flow.Subscription subscription;
+
+  /** Body failure. */
+  private volatile Throwable failure;
+
+  /** Buffers of the current item, only used by the reading thread. */
+  private Iterator<ByteBuffer> buffers;
+
+  /** Current buffer, only used by the reading thread. */
+  private ByteBuffer buffer;
+
+  /** Whether the end of the body was reached or the stream was closed. */
+  private boolean done;
+
+  /**
+   * constructor.
+   *
+   * @param readTimeout maximum time to wait for data
+   */
+  public ReadTimeoutInputStream(final Duration readTimeout) {
+    this.timeout = readTimeout;
+  }
+
+  @Override
+  public CompletionStage<InputStream> getBody() {
+    return CompletableFuture.completedFuture(this);
+  }
+
+  @Override
+  public void onSubscribe(final Flow.Subscription s) {
+    this.subscription = s;
+    s.request(1);
+  }
+
+  @Override
+  public void onNext(final List<ByteBuffer> item) {
+    this.queue.add(item);
+  }
+
+  @Override
+  public void onError(final Throwable throwable) {
+    this.failure = throwable;
+    this.queue.add(END);
+  }
+
+  @Override
+  public void onComplete() {
+    this.queue.add(END);
+  }
+
+  private boolean nextBuffer() throws IOException {
+
+    while (this.buffer == null || !this.buffer.hasRemaining()) {
+
+      if (this.done) {
+        return false;
+      }
+
+      if (this.buffers != null && this.buffers.hasNext()) {
+        this.buffer = this.buffers.next();
+        continue;
+      }
+
+      if (this.buffers != null) {
+        this.buffers = null;
+        this.subscription.request(1);
+      }
+
+      List<ByteBuffer> item;
+      try {
+        item = this.queue.poll(this.timeout.toMillis(), TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted reading response body");
+      }
+
+      if (item == null) {
+        close();
+        throw new HttpTimeoutException("No data received for " + this.timeout.toMillis() + " ms");
+      }
+
+      if (item == END) {
+        this.done = true;
+        if (this.failure != null) {
+          throw this.failure instanceof IOException ? (IOException) this.failure
+              : new IOException(this.failure.getMessage(), this.failure);
+        }
+        return false;
+      }
+
+      this.buffers = item.iterator();
+    }
+
+    return true;
+  }
+
+  @Override
+  public int read() throws IOException {
+    return nextBuffer() ? this.buffer.get() & 0xff : -1;
+  }
+
+  @Override
+  public int read(final byte[] b, final int off, final int len) throws IOException {
+
+    if (len == 0) {
+      return 0;
+    }
+
+    if (!nextBuffer()) {
+      return -1;
+    }
+
+    int count = Math.min(len, this.buffer.remaining());
+    this.buffer.get(b, off, count);
+    return count;
+  }
+
+  @Override
+  public void close() {
+    if (!this.done) {
+      this.done = true;
+      this.buffer = null;
+      Flow.Subscription s = this.subscription;
+      if (s != null) {
+        s.cancel();
+      }
+    }
+  }
+}
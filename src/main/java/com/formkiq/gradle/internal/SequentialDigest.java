@@ -0,0 +1,132 @@
+/**
+ * Copyright [2020] FormKiQ Inc. Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the License
+ * at
+ *
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.formkiq.gradle.internal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * SHA-256 of a file whose byte ranges are written out of order. Whenever the range at the current
+ * digest position completes, the digest advances over every contiguous completed range while the
+ * bytes are still hot in the page cache, so the finished download never needs a second full read.
+ */
+public class SequentialDigest {
+
+  /** Read Buffer Size. */
+  private static final int BUFFER_SIZE = 256 * 1024;
+
+  /** {@link MessageDigest}. */
+  private final MessageDigest digest;
+
+  /** Channel the ranges are written to. */
+  private final FileChannel channel;
+
+  /** Completed ranges ahead of the digest position, first to last (inclusive). */
+  private final TreeMap<Long, Long> pending = new TreeMap<>();
+
+  /** Read Buffer. */
+  private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+  /** Number of bytes digested. */
+  private long position;
+
+  /**
+   * constructor.
+   *
+   * @param fileChannel {@link FileChannel} opened for reading
+   */
+  public SequentialDigest(final FileChannel fileChannel) {
+    this.channel = fileChannel;
+    this.digest = sha256();
+  }
+
+  /**
+   * Create a SHA-256 {@link MessageDigest}.
+   *
+   * @return {@link MessageDigest}
+   */
+  public static MessageDigest sha256() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Record completed ranges.
+   *
+   * @param ranges {@link Map} of first to last (inclusive)
+   * @throws IOException IOException
+   */
+  public synchronized void completed(final Map<Long, Long> ranges) throws IOException {
+    this.pending.putAll(ranges);
+    advance();
+  }
+
+  /**
+   * Record a completed range.
+   *
+   * @param first first byte
+   * @param last last byte (inclusive)
+   * @throws IOException IOException
+   */
+  public synchronized void completed(final long first, final long last) throws IOException {
+    this.pending.put(first, last);
+    advance();
+  }
+
+  private void advance() throws IOException {
+
+    Map.Entry<Long, Long> next;
+    while ((next = this.pending.firstEntry()) != null && next.getKey() <= this.position) {
+
+      this.pending.pollFirstEntry();
+      long last = next.getValue();
+
+      while (this.position <= last) {
+        this.buffer.clear();
+        this.buffer.limit((int) Math.min(BUFFER_SIZE, last - this.position + 1));
+        int count = this.channel.read(this.buffer, this.position);
+        if (count < 0) {
+          throw new IOException("Unexpected end of file at " + this.position);
+        }
+        this.buffer.flip();
+        this.digest.update(this.buffer);
+        this.position += count;
+      }
+    }
+  }
+
+  /**
+   * Get the hex SHA-256, all bytes up to length must have been completed.
+   *
+   * @param length total length
+   * @return {@link String}
+   * @throws IOException IOException
+   */
+  public synchronized String finish(final long length) throws IOException {
+    if (this.position != length) {
+      throw new IOException("Digested " + this.position + " bytes, expected " + length);
+    }
+    return HexFormat.of().formatHex(this.digest.digest());
+  }
+}
@@ -0,0 +1,346 @@
+/**
+ * Copyright [2020] FormKiQ Inc. Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the License
+ * at
+ *
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.formkiq.gradle.internal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+
+/**
+ * Pipelined tar extractor. Gzip cannot be inflated in parallel, so the calling thread inflates the
+ * archive, parses the tar headers and reads file contents into chunks, while a pool of writer
+ * threads writes the chunks to their position in the file, creates symbolic links and sets
+ * permission bits. Chunks are direct buffers leased from a {@link BufferPool}, returned once
+ * written. The reader blocks once the capacity of the leased chunks would exceed the maximum
+ * number of buffered bytes.
+ */
+public class TarExtractor {
+
+  /** Default maximum number of buffered bytes (64 MB). */
+  public static final int DEFAULT_MAX_BUFFERED = 64 * 1024 * 1024;
+
+  /** Owner executable permission bit. */
+  private static final int OWNER_EXECUTE = 64;
+
+  /** Number of writer threads. */
+  private final int writers;
+
+  /** Maximum number of buffered bytes. */
+  private final int maxBuffered;
+
+  /** {@link BufferPool} chunks are leased from, its buffer size is the maximum chunk size. */
+  private final BufferPool buffers;
+
+  /**
+   * constructor.
+   *
+   * @param writerThreads number of writer threads
+   * @param maxBufferedBytes maximum number of bytes read but not yet written
+   */
+  public TarExtractor(final int writerThreads, final int maxBufferedBytes) {
+    this(writerThreads, maxBufferedBytes,
+        new BufferPool(BufferPool.DEFAULT_BUFFER_SIZE, writerThreads));
+  }
+
+  /**
+   * constructor.
+   *
+   * @param writerThreads number of writer threads
+   * @param maxBufferedBytes maximum number of bytes read but not yet written
+   * @param bufferPool {@link BufferPool} chunks are leased from
+   */
+  public TarExtractor(final int writerThreads, final int maxBufferedBytes,
+      final BufferPool bufferPool) {
+    this.writers = writerThreads;
+    this.buffers = bufferPool;
+    this.maxBuffered = Math.max(maxBufferedBytes, bufferPool.getBufferSize());
+  }
+
+  /**
+   * Extract a tar archive. Files that already exist are skipped.
+   *
+   * @param in {@link TarArchiveInputStream}
+   * @param directory {@link Path} canonical output directory
+   * @throws IOException IOException
+   */
+  public void extract(final TarArchiveInputStream in, final Path directory) throws IOException {
+    extract(in, directory, ExtractionFilter.full());
+  }
+
+  /**
+   * Extract the entries of a tar archive selected by a filter. Files that already exist are
+   * skipped.
+   *
+   * @param in {@link TarArchiveInputStream}
+   * @param directory {@link Path} canonical output directory
+   * @param filter {@link ExtractionFilter}
+   * @throws IOException IOException
+   */
+  public void extract(final TarArchiveInputStream in, final Path directory,
+      final ExtractionFilter filter) throws IOException {
+
+    Files.createDirectories(directory);
+
+    Semaphore budget = new Semaphore(this.maxBuffered);
+    AtomicReference<Throwable> failure = new AtomicReference<>();
+    ExecutorService executor = Executors.newFixedThreadPool(this.writers, r -> {
+      Thread t = new Thread(r, "graalvm-extract");
+      t.setDaemon(true);
+      return t;
+    });
+
+    try {
+      TarArchiveEntry entry;
+      while (failure.get() == null && (entry = in.getNextEntry()) != null) {
+
+        if (!filter.include(entry.getName(), entry.getSize())) {
+          continue;
+        }
+
+        Path fullpath = Path.of(directory.toString(), entry.getName());
+
+        if (entry.isDirectory()) {
+          Files.createDirectories(fullpath);
+
+        } else if (entry.isSymbolicLink()) {
+          final String linkName = entry.getLinkName();
+          createParentDirectories(fullpath);
+          executor.execute(() -> run(failure, () -> createSymbolicLink(fullpath, linkName)));
+
+        } else if (!Files.exists(fullpath)) {
+          createParentDirectories(fullpath);
+          readFile(in, entry,
+              new PendingFile(fullpath, entry.getSize(), (entry.getMode() & OWNER_EXECUTE) != 0,
+                  this.buffers.getBufferSize()),
+              executor, budget, failure);
+        }
+      }
+
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Extraction to " + directory + " interrupted", e);
+
+    } finally {
+      executor.shutdown();
+      awaitTermination(executor);
+    }
+
+    Throwable e = failure.get();
+    if (e != null) {
+      throw e instanceof IOException ? (IOException) e : new IOException(e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Read a file entry into chunks leased from the {@link BufferPool}, each chunk is written by the
+   * writer pool and returned to the pool once written.
+   *
+   * @param in {@link TarArchiveInputStream}
+   * @param entry {@link TarArchiveEntry}
+   * @param file {@link PendingFile}
+   * @param executor {@link ExecutorService}
+   * @param budget {@link Semaphore} of buffered bytes
+   * @param failure first failure
+   * @throws IOException IOException
+   * @throws InterruptedException InterruptedException
+   */
+  private void readFile(final TarArchiveInputStream in, final TarArchiveEntry entry,
+      final PendingFile file, final ExecutorService executor, final Semaphore budget,
+      final AtomicReference<Throwable> failure) throws IOException, InterruptedException {
+
+    try {
+      long position = 0;
+      long size = entry.getSize();
+
+      while (position < size && failure.get() == null) {
+
+        final int length = (int) Math.min(this.buffers.getBufferSize(), size - position);
+
+        // the budget is charged the leased buffer's capacity, not the chunk's length, so it
+        // bounds the direct memory held by chunks of small files too
+        final int capacity = this.buffers.getBufferSize();
+        budget.acquire(capacity);
+
+        final BufferPool.Lease chunk = this.buffers.acquire(length);
+        try {
+          readChunk(in, chunk, entry);
+        } catch (IOException | RuntimeException e) {
+          chunk.close();
+          budget.release(capacity);
+          throw e;
+        }
+
+        final long offset = position;
+        file.retain();
+        executor.execute(() -> {
+          try {
+            run(failure, () -> file.write(chunk.buffer(), offset));
+          } finally {
+            chunk.close();
+            budget.release(capacity);
+            run(failure, file::release);
+          }
+        });
+
+        position += length;
+      }
+
+    } finally {
+      // the reader's own reference, the last reference closes the file
+      executor.execute(() -> run(failure, file::release));
+    }
+  }
+
+  /**
+   * Fill a chunk's buffer up to its limit, through the lease's heap scratch buffer.
+   *
+   * @param in {@link TarArchiveInputStream}
+   * @param chunk {@link BufferPool.Lease}
+   * @param entry {@link TarArchiveEntry}
+   * @throws IOException IOException
+   */
+  private static void readChunk(final TarArchiveInputStream in, final BufferPool.Lease chunk,
+      final TarArchiveEntry entry) throws IOException {
+
+    ByteBuffer buffer = chunk.buffer();
+    byte[] scratch = chunk.scratch();
+
+    while (buffer.hasRemaining()) {
+      int count = in.read(scratch, 0, Math.min(scratch.length, buffer.remaining()));
+      if (count == -1) {
+        throw new IOException("Unexpected end of entry " + entry.getName());
+      }
+      buffer.put(scratch, 0, count);
+    }
+
+    buffer.flip();
+  }
+
+  private static void run(final AtomicReference<Throwable> failure, final IoTask task) {
+    try {
+      task.run();
+    } catch (IOException | RuntimeException e) {
+      failure.compareAndSet(null, e);
+    }
+  }
+
+  private static void awaitTermination(final ExecutorService executor) throws IOException {
+    try {
+      while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+        // keep waiting for the writers
+      }
+    } catch (InterruptedException e) {
+      executor.shutdownNow();
+      Thread.currentThread().interrupt();
+      throw new IOException("Extraction interrupted", e);
+    }
+  }
+
+  private static void createSymbolicLink(final Path path, final String linkName)
+      throws IOException {
+    try {
+      Files.createSymbolicLink(path, FileSystems.getDefault().getPath(linkName));
+    } catch (FileAlreadyExistsException | UnsupportedOperationException e) {
+      // ignore
+    }
+  }
+
+  private static void createParentDirectories(final Path path) throws IOException {
+    Path parent = path.getParent();
+    if (parent != null) {
+      Files.createDirectories(parent);
+    }
+  }
+
+  /** Task that throws an {@link IOException}. */
+  @FunctionalInterface
+  private interface IoTask {
+    void run() throws IOException;
+  }
+
+  /**
+   * File whose chunks are being written, the channel is opened by the first writer and closed,
+   * and its permissions set, once the last reference is released.
+   */
+  private static final class PendingFile {
+    /** File. */
+    private final Path path;
+    /** File Size. */
+    private final long size;
+    /** Whether the file is executable. */
+    private final boolean executable;
+    /** Maximum chunk size, larger files are extended to their size before they are written. */
+    private final int chunkSize;
+    /** References, the reader holds one until the entry is read. */
+    private final AtomicInteger references = new AtomicInteger(1);
+    /** Channel. */
+    private FileChannel channel;
+
+    private PendingFile(final Path file, final long fileSize, final boolean isExecutable,
+        final int maxChunkSize) {
+      this.path = file;
+      this.size = fileSize;
+      this.executable = isExecutable;
+      this.chunkSize = maxChunkSize;
+    }
+
+    private synchronized FileChannel channel() throws IOException {
+      if (this.channel == null) {
+        this.channel = FileChannel.open(this.path, StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        if (this.size > this.chunkSize) {
+          this.channel.write(ByteBuffer.wrap(new byte[1]), this.size - 1);
+        }
+      }
+      return this.channel;
+    }
+
+    private void retain() {
+      this.references.incrementAndGet();
+    }
+
+    private void write(final ByteBuffer buffer, final long offset) throws IOException {
+      FileChannel fileChannel = channel();
+      long position = offset;
+      while (buffer.hasRemaining()) {
+        position += fileChannel.write(buffer, position);
+      }
+    }
+
+    private void release() throws IOException {
+      if (this.references.decrementAndGet() == 0) {
+
+        channel().close();
+
+        if (this.executable && !this.path.toFile().setExecutable(true, false)) {
+          throw new IOException("Unable to set executable permission on " + this.path);
+        }
+      }
+    }
+  }
+}
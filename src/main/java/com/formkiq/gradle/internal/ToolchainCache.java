@@ -0,0 +1,319 @@
+/**
+ * Copyright [2020] FormKiQ Inc. Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the License
+ * at
+ *
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.formkiq.gradle.internal;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Machine-wide cache of provisioned GraalVM toolchains. Each entry is a directory named after its
+ * key, an entry is only used once its provisioning completed, and least recently used entries are
+ * evicted once the total size of the cache exceeds its maximum size. The same cache layout backs
+ * the {@link ClassStore}.
+ */
+public class ToolchainCache {
+
+  /** Default maximum cache size (10 GB). */
+  public static final long DEFAULT_MAX_SIZE = 10L * 1024 * 1024 * 1024;
+
+  private static final Logger LOGGER = Logger.getLogger(ToolchainCache.class.getName());
+
+  /** Marker written once an entry is completely provisioned, contains the entry size. */
+  private static final String COMPLETE_MARKER = ".complete";
+
+  /** Marker touched every time an entry is used. */
+  private static final String LAST_USED_MARKER = ".lastUsed";
+
+  /** Lock File suffix. */
+  private static final String LOCK_SUFFIX = ".lock";
+
+  /** Entries used more recently than this are never evicted. */
+  private static final long EVICTION_GRACE_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+  /** In-JVM locks, {@link FileLock} only guard against other processes. */
+  private static final Map<Path, ReentrantLock> LOCKS = new ConcurrentHashMap<>();
+
+  /** Cache Directory. */
+  private final Path directory;
+
+  /** Maximum size in bytes. */
+  private final long maxSize;
+
+  /** Description of the entries, used in log messages. */
+  private final String description;
+
+  /**
+   * constructor.
+   *
+   * @param cacheDirectory {@link Path}
+   * @param maxCacheSize maximum size in bytes
+   */
+  public ToolchainCache(final Path cacheDirectory, final long maxCacheSize) {
+    this(cacheDirectory, maxCacheSize, "GraalVM toolchain");
+  }
+
+  /**
+   * constructor.
+   *
+   * @param cacheDirectory {@link Path}
+   * @param maxCacheSize maximum size in bytes
+   * @param entryDescription description of the entries, used in log messages
+   */
+  public ToolchainCache(final Path cacheDirectory, final long maxCacheSize,
+      final String entryDescription) {
+    this.directory = cacheDirectory;
+    this.maxSize = maxCacheSize;
+    this.description = entryDescription;
+  }
+
+  /**
+   * Create a cache key, characters that are not valid in a directory name are replaced.
+   *
+   * @param parts {@link String}
+   * @return {@link String}
+   */
+  public static String key(final String... parts) {
+    return String.join("-", parts).replaceAll("[^A-Za-z0-9._-]", "_");
+  }
+
+  /**
+   * Get the entry for a key, provisioning it first if it is missing or incomplete.
+   *
+   * @param key cache key
+   * @param provisioner {@link Provisioner} to populate the entry
+   * @return {@link Path} entry directory
+   * @throws IOException IOException
+   */
+  public Path provision(final String key, final Provisioner provisioner) throws IOException {
+    return provision(key, entry -> true, provisioner);
+  }
+
+  /**
+   * Get the entry for a key, provisioning it first if it is missing, incomplete or if a complete
+   * entry fails verification (e.g. files were removed from it).
+   *
+   * @param key cache key
+   * @param verifier {@link Predicate} verifying a complete entry
+   * @param provisioner {@link Provisioner} to populate the entry
+   * @return {@link Path} entry directory
+   * @throws IOException IOException
+   */
+  public Path provision(final String key, final Predicate<Path> verifier,
+      final Provisioner provisioner) throws IOException {
+
+    Path entry = this.directory.resolve(key);
+
+    try (EntryLock lock = lock(entry)) {
+
+      if (isComplete(entry) && !verifier.test(entry)) {
+        LOGGER.log(Level.WARNING, "Cached {0} {1} failed verification",
+            new Object[] {this.description, entry});
+        Files.delete(entry.resolve(COMPLETE_MARKER));
+      }
+
+      if (!isComplete(entry)) {
+        LOGGER.log(Level.INFO, "Provisioning {0} {1}", new Object[] {this.description, entry});
+        Files.createDirectories(entry);
+        provisioner.provision(entry);
+        Files.writeString(entry.resolve(COMPLETE_MARKER), String.valueOf(sizeOf(entry)),
+            StandardCharsets.UTF_8);
+      } else {
+        LOGGER.log(Level.INFO, "Using cached {0} {1}", new Object[] {this.description, entry});
+      }
+
+      touch(entry);
+    }
+
+    evict(entry);
+    return entry;
+  }
+
+  private boolean isComplete(final Path entry) {
+    return Files.isRegularFile(entry.resolve(COMPLETE_MARKER));
+  }
+
+  private void touch(final Path entry) throws IOException {
+    Path marker = entry.resolve(LAST_USED_MARKER);
+    if (!Files.exists(marker)) {
+      Files.createFile(marker);
+    }
+    Files.setLastModifiedTime(marker, FileTime.fromMillis(System.currentTimeMillis()));
+  }
+
+  private long lastUsed(final Path entry) {
+    try {
+      Path marker = entry.resolve(LAST_USED_MARKER);
+      return Files.exists(marker) ? Files.getLastModifiedTime(marker).toMillis()
+          : Files.getLastModifiedTime(entry).toMillis();
+    } catch (IOException e) {
+      return 0;
+    }
+  }
+
+  private long recordedSize(final Path entry) {
+    try {
+      return isComplete(entry)
+          ? Long.parseLong(Files.readString(entry.resolve(COMPLETE_MARKER)).trim())
+          : sizeOf(entry);
+    } catch (IOException | NumberFormatException e) {
+      return 0;
+    }
+  }
+
+  private long sizeOf(final Path path) throws IOException {
+    try (Stream<Path> walker = Files.walk(path)) {
+      return walker.filter(Files::isRegularFile).mapToLong(p -> p.toFile().length()).sum();
+    }
+  }
+
+  /**
+   * Evict least recently used entries until the cache fits its maximum size. The current entry
+   * and entries used within the grace period are kept.
+   *
+   * @param current {@link Path}
+   * @throws IOException IOException
+   */
+  private void evict(final Path current) throws IOException {
+
+    List<Path> entries;
+    try (Stream<Path> stream = Files.list(this.directory)) {
+      entries = new ArrayList<>(stream.filter(Files::isDirectory).toList());
+    }
+
+    long total = entries.stream().mapToLong(this::recordedSize).sum();
+    if (total <= this.maxSize) {
+      return;
+    }
+
+    long now = System.currentTimeMillis();
+    entries.sort(Comparator.comparingLong(this::lastUsed));
+
+    for (Path entry : entries) {
+
+      if (total <= this.maxSize) {
+        break;
+      }
+
+      if (entry.equals(current) || now - lastUsed(entry) < EVICTION_GRACE_MILLIS) {
+        continue;
+      }
+
+      try (EntryLock lock = tryLock(entry)) {
+        if (lock != null) {
+          long size = recordedSize(entry);
+          LOGGER.log(Level.INFO, "Evicting {0} {1}", new Object[] {this.description, entry});
+          Files.deleteIfExists(entry.resolve(COMPLETE_MARKER));
+          FileUtils.deleteRecursively(entry);
+          total -= size;
+        }
+      }
+    }
+  }
+
+  private EntryLock lock(final Path entry) throws IOException {
+    ReentrantLock jvmLock = LOCKS.computeIfAbsent(entry, k -> new ReentrantLock());
+    jvmLock.lock();
+    try {
+      FileChannel channel = openLockFile(entry);
+      return new EntryLock(jvmLock, channel, channel.lock());
+    } catch (IOException | RuntimeException e) {
+      jvmLock.unlock();
+      throw e;
+    }
+  }
+
+  private EntryLock tryLock(final Path entry) throws IOException {
+    ReentrantLock jvmLock = LOCKS.computeIfAbsent(entry, k -> new ReentrantLock());
+    if (!jvmLock.tryLock()) {
+      return null;
+    }
+
+    try {
+      FileChannel channel = openLockFile(entry);
+      FileLock fileLock = channel.tryLock();
+      if (fileLock == null) {
+        channel.close();
+        jvmLock.unlock();
+        return null;
+      }
+      return new EntryLock(jvmLock, channel, fileLock);
+    } catch (IOException | RuntimeException e) {
+      jvmLock.unlock();
+      throw e;
+    }
+  }
+
+  private FileChannel openLockFile(final Path entry) throws IOException {
+    Files.createDirectories(this.directory);
+    return FileChannel.open(entry.resolveSibling(entry.getFileName() + LOCK_SUFFIX),
+        StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+  }
+
+  /** Populates a cache entry. */
+  @FunctionalInterface
+  public interface Provisioner {
+    /**
+     * Provision entry.
+     *
+     * @param entry {@link Path} entry directory
+     * @throws IOException IOException
+     */
+    void provision(Path entry) throws IOException;
+  }
+
+  /** Lock held on a cache entry, both in this JVM and across processes. */
+  private static final class EntryLock implements AutoCloseable {
+    /** In-JVM Lock. */
+    private final ReentrantLock jvmLock;
+    /** Lock File Channel. */
+    private final FileChannel channel;
+    /** Lock. */
+    private final FileLock fileLock;
+
+    private EntryLock(final ReentrantLock lock, final FileChannel lockChannel,
+        final FileLock lockFile) {
+      this.jvmLock = lock;
+      this.channel = lockChannel;
+      this.fileLock = lockFile;
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        this.fileLock.release();
+        this.channel.close();
+      } finally {
+        this.jvmLock.unlock();
+      }
+    }
+  }
+}
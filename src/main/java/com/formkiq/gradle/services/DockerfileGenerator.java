@@ -2,8 +2,8 @@ package com.formkiq.gradle.services;
 
 import static com.formkiq.gradle.internal.NativeImageExecutor.GRAALVM_JAVA_MAIN;
 
-import com.formkiq.gradle.GraalvmNativeExtension;
 import com.formkiq.gradle.GraalvmParameterToStrings;
+import com.formkiq.gradle.NativeImageSpec;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
@@ -134,11 +134,11 @@ public class DockerfileGenerator {
     /**
      * Add Native Image Args.
      *
-     * @param extension {@link GraalvmNativeExtension}
+     * @param spec {@link NativeImageSpec}
      * @return Builder
      */
-    public Builder addNativeImageArgs(final GraalvmNativeExtension extension) {
-      List<String> params = new GraalvmParameterToStrings().apply(extension);
+    public Builder addNativeImageArgs(final NativeImageSpec spec) {
+      List<String> params = new GraalvmParameterToStrings().apply(spec);
       this.nativeImageArgs.addAll(params);
       return this;
     }
@@ -0,0 +1,72 @@
+/**
+ * Copyright [2020] FormKiQ Inc. Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the License
+ * at
+ *
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.formkiq.gradle.services;
+
+import com.formkiq.gradle.internal.ArchiveUtils;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashSet;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.workers.WorkAction;
+import org.gradle.workers.WorkParameters;
+
+/**
+ * Gradle work item exploding the entries of a single jar. Every work item is given exactly the
+ * entries its jar owns, so work items never write the same file and run in any order.
+ */
+public abstract class ExplodeJarWorkAction implements WorkAction<ExplodeJarWorkAction.Parameters> {
+
+  /** constructor. */
+  public ExplodeJarWorkAction() {}
+
+  @Override
+  public void execute() {
+    Parameters params = getParameters();
+    try {
+      new ArchiveUtils().decompressEntries(params.getJar().get().getAsFile(),
+          params.getOutputDirectory().get().getAsFile(),
+          new LinkedHashSet<>(params.getEntries().get()));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /** {@link ExplodeJarWorkAction} parameters. */
+  public interface Parameters extends WorkParameters {
+
+    /**
+     * Get Jar.
+     *
+     * @return {@link RegularFileProperty}
+     */
+    RegularFileProperty getJar();
+
+    /**
+     * Get Output Directory.
+     *
+     * @return {@link DirectoryProperty}
+     */
+    DirectoryProperty getOutputDirectory();
+
+    /**
+     * Get Entries to explode.
+     *
+     * @return {@link ListProperty}
+     */
+    ListProperty<String> getEntries();
+  }
+}
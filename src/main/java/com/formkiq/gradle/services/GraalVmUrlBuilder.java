@@ -7,14 +7,19 @@ import org.jetbrains.annotations.NotNull;
 /** GraalVm Url Builder. */
 public class GraalVmUrlBuilder {
 
+  /** Prefix of a mirror using a Maven repository layout. */
+  public static final String MAVEN_MIRROR_PREFIX = "maven:";
+
   private final String javaVersion;
   private final String version;
   private final Platform platform;
+  private final List<String> mirrors;
 
   private GraalVmUrlBuilder(Builder builder) {
     this.javaVersion = builder.javaVersion;
     this.version = builder.version;
     this.platform = builder.platform;
+    this.mirrors = List.copyOf(builder.mirrors);
   }
 
   /**
@@ -61,6 +66,58 @@ public class GraalVmUrlBuilder {
     return list;
   }
 
+  /**
+   * Builds the download URLs on the configured mirrors, in mirror order. A mirror is either a base
+   * URL ("https://", "file://") holding the GitHub release files, tried as
+   * "&lt;mirror&gt;/&lt;release tag&gt;/&lt;file&gt;" and "&lt;mirror&gt;/&lt;file&gt;", or a
+   * "maven:" prefixed Maven repository URL holding the artifact
+   * "org.graalvm:graalvm-ce:&lt;version&gt;:&lt;javaVersion&gt;-&lt;platform&gt;@&lt;ext&gt;".
+   *
+   * @return the mirror URLs
+   */
+  public List<String> buildMirrors() {
+
+    List<String> urls = new ArrayList<>();
+    if (mirrors.isEmpty()) {
+      return urls;
+    }
+
+    List<String> releaseUrls = build();
+
+    for (String mirror : mirrors) {
+
+      if (mirror.startsWith(MAVEN_MIRROR_PREFIX)) {
+        urls.add(getMavenUrl(trimSlash(mirror.substring(MAVEN_MIRROR_PREFIX.length()))));
+      } else {
+        String base = trimSlash(mirror);
+        for (String releaseUrl : releaseUrls) {
+          String[] path = releaseUrl.split("/");
+          String file = path[path.length - 1];
+          String tag = path[path.length - 2];
+          addIfMissing(urls, base + "/" + tag + "/" + file);
+          addIfMissing(urls, base + "/" + file);
+        }
+      }
+    }
+
+    return urls;
+  }
+
+  private void addIfMissing(final List<String> urls, final String url) {
+    if (!urls.contains(url)) {
+      urls.add(url);
+    }
+  }
+
+  private String trimSlash(final String url) {
+    return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+  }
+
+  private @NotNull String getMavenUrl(final String repository) {
+    return String.format("%s/org/graalvm/graalvm-ce/%s/graalvm-ce-%s-%s-%s.%s", repository, version,
+        version, javaVersion, platform.getSuffix(), platform.getExtension());
+  }
+
   private @NotNull String getGraalvmBuildLegacy(final String suffix) {
     return String.format(
         "https://github.com/graalvm/graalvm-ce-builds/releases/download/vm-%s/graalvm-ce-%s-%s-%s.%s",
@@ -93,6 +150,7 @@ public class GraalVmUrlBuilder {
     private String javaVersion;
     private String version;
     private Platform platform;
+    private final List<String> mirrors = new ArrayList<>();
 
     /**
      * Specifies the Java version (e.g., "java17", "java11").
@@ -127,6 +185,19 @@ public class GraalVmUrlBuilder {
       return this;
     }
 
+    /**
+     * Specifies mirror base URLs, tried before GitHub.
+     *
+     * @param mirrorUrls {@link List} {@link String}
+     * @return Builder
+     */
+    public Builder withMirrors(final List<String> mirrorUrls) {
+      if (mirrorUrls != null) {
+        this.mirrors.addAll(mirrorUrls);
+      }
+      return this;
+    }
+
     /**
      * Builds the GraalVMUrlBuilder instance.
      *
@@ -135,5 +206,14 @@ public class GraalVmUrlBuilder {
     public List<String> build() {
       return new GraalVmUrlBuilder(this).build();
     }
+
+    /**
+     * Builds the mirror URLs.
+     *
+     * @return List {@link String}
+     */
+    public List<String> buildMirrors() {
+      return new GraalVmUrlBuilder(this).buildMirrors();
+    }
   }
 }
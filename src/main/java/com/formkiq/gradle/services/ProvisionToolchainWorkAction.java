@@ -0,0 +1,354 @@
+/**
+ * Copyright [2020] FormKiQ Inc. Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the License
+ * at
+ *
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.formkiq.gradle.services;
+
+import com.formkiq.gradle.internal.ArchiveUtils;
+import com.formkiq.gradle.internal.Downloader;
+import com.formkiq.gradle.internal.ExtractionFilter;
+import com.formkiq.gradle.internal.ExtractionManifest;
+import com.formkiq.gradle.internal.FileUtils;
+import com.formkiq.gradle.internal.NativeImageExecutor;
+import com.formkiq.gradle.internal.SequentialDigest;
+import com.formkiq.gradle.internal.ToolchainCache;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.text.MessageFormat;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.stream.Stream;
+import javax.inject.Inject;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.process.ExecOperations;
+import org.gradle.workers.WorkAction;
+import org.gradle.workers.WorkParameters;
+
+/**
+ * Gradle work item resolving the GraalVM toolchain from the machine-wide {@link ToolchainCache},
+ * downloading and extracting it on a cache miss, installing native-image with 'gu' when needed and
+ * writing the GraalVM base directory to the toolchain file. Running as a work item lets Gradle run
+ * the project's other tasks, e.g. compileJava and test, while the toolchain is provisioned.
+ */
+public abstract class ProvisionToolchainWorkAction
+    implements WorkAction<ProvisionToolchainWorkAction.Parameters> {
+
+  /** Directory inside a toolchain cache entry the GraalVM distribution is extracted to. */
+  private static final String TOOLCHAIN_DIST = "dist";
+
+  /** {@link ExtractionManifest} of a toolchain cache entry. */
+  private static final String TOOLCHAIN_MANIFEST = "dist.manifest";
+
+  private static final Logger LOGGER = Logging.getLogger(ProvisionToolchainWorkAction.class);
+
+  /** {@link ArchiveUtils}. */
+  private final ArchiveUtils archiveUtils = new ArchiveUtils();
+
+  /** constructor. */
+  public ProvisionToolchainWorkAction() {}
+
+  /**
+   * Get {@link ExecOperations}.
+   *
+   * @return {@link ExecOperations}
+   */
+  @Inject
+  protected abstract ExecOperations getExecOperations();
+
+  @Override
+  public void execute() {
+    try {
+      Path graalvmBaseDir = provisionToolchain();
+
+      Path toolchainFile = getParameters().getToolchainFile().get().getAsFile().toPath();
+      Path parent = toolchainFile.getParent();
+      if (parent != null) {
+        Files.createDirectories(parent);
+      }
+      Files.writeString(toolchainFile, graalvmBaseDir.toString(), StandardCharsets.UTF_8);
+
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Resolve the GraalVM toolchain from the machine-wide {@link ToolchainCache}, downloading and
+   * extracting it on a cache miss. 'gu' runs while the entry is locked and before it is marked
+   * complete, so builds sharing the entry never install native-image into it concurrently.
+   *
+   * @return {@link Path} GraalVM base directory
+   * @throws IOException IOException
+   */
+  private Path provisionToolchain() throws IOException {
+
+    Parameters params = getParameters();
+    ToolchainCache cache =
+        new ToolchainCache(params.getToolchainCacheDirectory().get().getAsFile().toPath(),
+            params.getToolchainCacheMaxSize().get().longValue());
+
+    File imageFile = params.getImageFile().getAsFile().getOrNull();
+    Platform platform = Platform.detect();
+    ExtractionFilter filter = new ExtractionFilter(params.getExtractionProfile().get());
+
+    String key;
+    if (imageFile == null) {
+      key = ToolchainCache.key("graalvm", params.getImageVersion().get(),
+          params.getJavaVersion().get(), platform.getSuffix(), filter.getProfile());
+    } else {
+      // keyed on the contents, a replaced archive under the same name and size is a cache miss
+      key = ToolchainCache.key("file", sha256(imageFile), filter.getProfile());
+    }
+
+    Path entry = cache.provision(key, dir -> isExtracted(dir, imageFile == null), dir -> {
+
+      Path toFile = dir.resolve(getFilename());
+      Path dist = dir.resolve(TOOLCHAIN_DIST);
+      FileUtils.deleteRecursively(dist);
+      boolean keepArchive = params.getEnableKeepImageArchive().get().booleanValue();
+
+      if (imageFile == null) {
+        GraalVmUrlBuilder.Builder urls =
+            GraalVmUrlBuilder.builder().withJavaVersion(params.getJavaVersion().get())
+                .withVersion(params.getImageVersion().get()).withPlatform(platform)
+                .withMirrors(params.getMirrors().getOrNull());
+        Downloader downloader = new Downloader(params.getDownloadConnections().get().intValue(),
+            params.getDownloadSegmentSize().get().longValue());
+        String checksum = params.getImageChecksum().getOrNull();
+
+        if (params.getEnableStreamingExtraction().get().booleanValue()
+            && !toFile.toString().endsWith(".zip")) {
+
+          String sha256 = downloader.downloadStreaming(urls.buildMirrors(), urls.build(),
+              keepArchive ? toFile : null, checksum,
+              in -> archiveUtils.decompressTarGZip(in, dist.toFile(), filter));
+          logSkipped(filter);
+          if (!keepArchive) {
+            Files.writeString(Downloader.getChecksumFile(toFile), sha256,
+                StandardCharsets.UTF_8);
+          }
+
+          installNativeImage(dist);
+          ExtractionManifest.create(dist, sha256).write(dir.resolve(TOOLCHAIN_MANIFEST));
+          return;
+        }
+
+        downloader.download(urls.buildMirrors(), urls.build(), toFile, checksum);
+      } else {
+        toFile = imageFile.toPath();
+        keepArchive = true;
+      }
+
+      archiveUtils.decompress(toFile.toFile(), dist.toFile(), filter);
+      logSkipped(filter);
+      installNativeImage(dist);
+      ExtractionManifest.create(dist, imageFile == null ? readArchiveChecksum(dir) : null)
+          .write(dir.resolve(TOOLCHAIN_MANIFEST));
+
+      if (!keepArchive) {
+        Files.deleteIfExists(toFile);
+      }
+    });
+
+    Path dist = entry.resolve(TOOLCHAIN_DIST);
+    return dist.resolve(getFirstSubdirectory(dist));
+  }
+
+  /**
+   * Install native-image with 'gu' into an extracted toolchain, when it does not already contain it.
+   *
+   * @param dist {@link Path} extracted distribution
+   * @throws IOException IOException
+   */
+  private void installNativeImage(final Path dist) throws IOException {
+    NativeImageExecutor.runGuInstallation(getExecOperations(),
+        dist.resolve(getFirstSubdirectory(dist)));
+  }
+
+  private void logSkipped(final ExtractionFilter filter) {
+    if (filter.getSkippedEntries() > 0) {
+      LOGGER.lifecycle("Extraction profile '" + filter.getProfile() + "' skipped "
+          + filter.getSkippedEntries() + " entries (" + filter.getSkippedBytes() + " bytes)");
+    }
+  }
+
+  /**
+   * Verify a cached toolchain against its {@link ExtractionManifest}, without reading the archive.
+   *
+   * @param dir {@link Path} cache entry
+   * @param downloaded whether the archive was downloaded, so its checksum is known
+   * @return boolean
+   */
+  private boolean isExtracted(final Path dir, final boolean downloaded) {
+    ExtractionManifest manifest = ExtractionManifest.read(dir.resolve(TOOLCHAIN_MANIFEST));
+    try {
+      return manifest != null && manifest.verify(dir.resolve(TOOLCHAIN_DIST),
+          downloaded ? readArchiveChecksum(dir) : null);
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  private static String sha256(final File file) throws IOException {
+    MessageDigest digest = SequentialDigest.sha256();
+    try (InputStream in = new DigestInputStream(Files.newInputStream(file.toPath()), digest)) {
+      in.transferTo(OutputStream.nullOutputStream());
+    }
+    return HexFormat.of().formatHex(digest.digest());
+  }
+
+  private String readArchiveChecksum(final Path dir) throws IOException {
+    return Files.readString(Downloader.getChecksumFile(dir.resolve(getFilename())),
+        StandardCharsets.UTF_8).trim();
+  }
+
+  /**
+   * @param directory the path to a real directory on disk (absolute or relative)
+   * @return the name of the first subdirectory (alphabetical order), or empty if none
+   * @throws IllegalArgumentException if dirPath does not exist or is not a directory
+   * @throws IOException if an I/O error occurs while reading the directory
+   */
+  private String getFirstSubdirectory(final Path directory) throws IOException {
+
+    // 1) Make sure the path exists and is a directory
+    if (!Files.exists(directory) || !Files.isDirectory(directory)) {
+      throw new IllegalArgumentException("Not a directory: " + directory);
+    }
+
+    // 2) List entries, filter only directories, sort by name, and pick the first
+    // sort by Path’s natural order (alphabetical)
+    Optional<Path> firstDir;
+    try (Stream<Path> stream = Files.list(directory)) {
+      firstDir = stream.filter(Files::isDirectory).sorted().findFirst();
+    }
+
+    return firstDir.map(Path::getFileName).map(Path::toString).orElseThrow();
+  }
+
+  private String getFilenameExtension() {
+    String os = System.getProperty("os.name").toLowerCase();
+    return os.startsWith("windows") ? "zip" : "tar.gz";
+  }
+
+  private String getFilename() {
+    return MessageFormat.format("graalvm-ce.{0}", getFilenameExtension());
+  }
+
+  /** {@link ProvisionToolchainWorkAction} parameters. */
+  public interface Parameters extends WorkParameters {
+
+    /**
+     * Get GraalVM version.
+     *
+     * @return {@link Property}
+     */
+    Property<String> getImageVersion();
+
+    /**
+     * Get Java version.
+     *
+     * @return {@link Property}
+     */
+    Property<String> getJavaVersion();
+
+    /**
+     * Get local GraalVM archive, instead of downloading it.
+     *
+     * @return {@link RegularFileProperty}
+     */
+    RegularFileProperty getImageFile();
+
+    /**
+     * Get expected SHA-256 of the downloaded archive.
+     *
+     * @return {@link Property}
+     */
+    Property<String> getImageChecksum();
+
+    /**
+     * Get Extraction profile.
+     *
+     * @return {@link Property}
+     */
+    Property<String> getExtractionProfile();
+
+    /**
+     * Get Download mirrors.
+     *
+     * @return {@link ListProperty}
+     */
+    ListProperty<String> getMirrors();
+
+    /**
+     * Get Maximum number of parallel download connections.
+     *
+     * @return {@link Property}
+     */
+    Property<Integer> getDownloadConnections();
+
+    /**
+     * Get Download Range request segment size.
+     *
+     * @return {@link Property}
+     */
+    Property<Long> getDownloadSegmentSize();
+
+    /**
+     * Get Maximum size in bytes of the toolchain cache.
+     *
+     * @return {@link Property}
+     */
+    Property<Long> getToolchainCacheMaxSize();
+
+    /**
+     * Get Enable extracting the archive while it is downloaded.
+     *
+     * @return {@link Property}
+     */
+    Property<Boolean> getEnableStreamingExtraction();
+
+    /**
+     * Get Enable keeping the archive once extracted.
+     *
+     * @return {@link Property}
+     */
+    Property<Boolean> getEnableKeepImageArchive();
+
+    /**
+     * Get Toolchain cache directory.
+     *
+     * @return {@link DirectoryProperty}
+     */
+    DirectoryProperty getToolchainCacheDirectory();
+
+    /**
+     * Get File the GraalVM base directory is written to.
+     *
+     * @return {@link RegularFileProperty}
+     */
+    RegularFileProperty getToolchainFile();
+  }
+}
@@ -3,53 +3,298 @@ package com.formkiq.gradle.services;
 import static com.formkiq.gradle.internal.NativeImageExecutor.GRAALVM_JAVA_MAIN;
 
 import com.formkiq.gradle.internal.ArchiveUtils;
+import com.formkiq.gradle.internal.ClassStore;
+import com.formkiq.gradle.internal.ClasspathManifest;
+import com.formkiq.gradle.internal.FileUtils;
+import com.formkiq.gradle.internal.SequentialDigest;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.function.BiFunction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 import org.gradle.api.Project;
 import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.workers.WorkQueue;
+import org.gradle.workers.WorkerExecutor;
 
-/** Decompress {@link Project} Runtime Dependencies. */
+/**
+ * Decompress {@link Project} Runtime Dependencies. The classpath is exploded incrementally: a
+ * {@link ClasspathManifest} next to the exploded directory records the entries each jar produced,
+ * so only entries of added or changed jars are written and entries of removed jars are deleted. As
+ * on the classpath, the first jar containing an entry wins.
+ *
+ * <p>
+ * With a {@link WorkerExecutor}, every jar is exploded by its own {@link ExplodeJarWorkAction}, so
+ * jars are exploded in parallel up to Gradle's "--max-workers". With a {@link ClassStore}, every
+ * jar is exploded once into the store and the exploded classpath is assembled with hard links.
+ */
 public class RuntimeDependenciesDecompress
     implements BiFunction<Path, ConfigurableFileCollection, Void> {
 
+  /** {@link ClasspathManifest} file, next to the exploded classpath. */
+  public static final String MANIFEST = GRAALVM_JAVA_MAIN + ".manifest";
+
+  private static final Logger LOGGER =
+      Logger.getLogger(RuntimeDependenciesDecompress.class.getName());
+
   /** {@link ArchiveUtils}. */
   private final ArchiveUtils archiveUtils = new ArchiveUtils();
 
+  /** {@link WorkerExecutor}, null to explode jars on the calling thread. */
+  private final WorkerExecutor workerExecutor;
+
+  /** {@link ClassStore}, null to explode jars directly into the classpath directory. */
+  private final ClassStore classStore;
+
   /** constructor. */
-  public RuntimeDependenciesDecompress() {}
+  public RuntimeDependenciesDecompress() {
+    this(null, null);
+  }
+
+  /**
+   * constructor.
+   *
+   * @param executor {@link WorkerExecutor}, null to explode jars on the calling thread
+   * @param store {@link ClassStore}, null to explode jars directly into the classpath directory
+   */
+  public RuntimeDependenciesDecompress(final WorkerExecutor executor, final ClassStore store) {
+    this.workerExecutor = executor;
+    this.classStore = store;
+  }
 
   @Override
   public Void apply(final Path buildDir, final ConfigurableFileCollection files) {
 
     try {
       Path outputPath = buildDir.resolve(GRAALVM_JAVA_MAIN);
-      File outputdir = outputPath.toFile();
+      Path manifestFile = buildDir.resolve(MANIFEST);
 
-      for (File file : files) {
-        if (file.getName().endsWith(".jar")) {
-          archiveUtils.decompressJar(file.toPath().toFile(), outputdir);
-        }
+      ClasspathManifest previous =
+          Files.isDirectory(outputPath) ? ClasspathManifest.read(manifestFile) : null;
+      if (previous == null) {
+        FileUtils.deleteRecursively(outputPath);
+      }
+      Files.createDirectories(outputPath);
+
+      ClasspathManifest current = scan(getClasspathJars(buildDir, files), previous);
+
+      if (previous != null && isUnchanged(previous, current)) {
+        LOGGER.log(Level.INFO, "Exploded classpath {0} is up to date", outputPath);
+        return null;
       }
 
-      Path libsDir = buildDir.resolve("../libs");
+      // an interrupted update must not leave a manifest that no longer matches the directory
+      Files.deleteIfExists(manifestFile);
+      update(outputPath, previous, current);
+      current.write(manifestFile);
+
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+
+    return null;
+  }
+
+  /**
+   * Get the jars to explode in classpath order, the runtime classpath jars followed by the
+   * project's own jars in build/libs, without duplicates.
+   *
+   * @param buildDir {@link Path}
+   * @param files {@link Iterable} {@link File} runtime classpath
+   * @return {@link List} {@link File}
+   * @throws IOException IOException
+   */
+  public static List<File> getClasspathJars(final Path buildDir, final Iterable<File> files)
+      throws IOException {
 
+    Set<File> jars = new LinkedHashSet<>();
+
+    for (File file : files) {
+      if (file.getName().endsWith(".jar") && file.isFile()) {
+        jars.add(file.getCanonicalFile());
+      }
+    }
+
+    Path libsDir = buildDir.resolve("../libs");
+    if (Files.isDirectory(libsDir)) {
       try (Stream<Path> stream = Files.list(libsDir)) {
-        List<File> libFiles = stream.map(Path::toFile).toList();
+        for (Path file : stream.sorted().toList()) {
+          if (Files.isRegularFile(file)) {
+            jars.add(file.toFile().getCanonicalFile());
+          }
+        }
+      }
+    }
+
+    return new ArrayList<>(jars);
+  }
+
+  /**
+   * Scan the central directory of every jar and assign each entry to the first jar containing
+   * it. The SHA-256 of a jar is reused from the previous manifest when its size and last modified
+   * time are unchanged, jars with the same content as an earlier jar are skipped.
+   *
+   * @param jars {@link List} {@link File}
+   * @param previous {@link ClasspathManifest}, may be null
+   * @return {@link ClasspathManifest}
+   * @throws IOException IOException
+   */
+  private ClasspathManifest scan(final List<File> jars, final ClasspathManifest previous)
+      throws IOException {
+
+    Map<String, ClasspathManifest.Jar> previousJars = new HashMap<>();
+    if (previous != null) {
+      previous.getJars().forEach(jar -> previousJars.put(jar.getPath(), jar));
+    }
+
+    List<ClasspathManifest.Jar> scanned = new ArrayList<>();
+    Set<String> hashes = new HashSet<>();
+    Set<String> names = new HashSet<>();
+
+    for (File file : jars) {
+
+      String path = file.getPath();
+      ClasspathManifest.Jar before = previousJars.get(path);
+      String sha256 = before != null && before.getSize() == file.length()
+          && before.getLastModified() == file.lastModified() ? before.getSha256() : sha256(file);
+
+      if (!hashes.add(sha256)) {
+        continue;
+      }
+
+      ClasspathManifest.Jar jar =
+          new ClasspathManifest.Jar(path, file.length(), file.lastModified(), sha256);
 
-        for (File file : libFiles) {
-          archiveUtils.decompressJar(file, outputdir);
+      try (ZipFile zip = new ZipFile(file)) {
+        Enumeration<? extends ZipEntry> entries = zip.entries();
+        while (entries.hasMoreElements()) {
+          ZipEntry entry = entries.nextElement();
+          if (!entry.isDirectory() && names.add(entry.getName())) {
+            jar.getEntries().put(entry.getName(),
+                new ClasspathManifest.Entry(entry.getCrc(), entry.getSize()));
+          }
         }
       }
 
-    } catch (IOException e) {
-      throw new RuntimeException(e);
+      scanned.add(jar);
     }
 
-    return null;
+    return new ClasspathManifest(scanned);
+  }
+
+  private boolean isUnchanged(final ClasspathManifest previous, final ClasspathManifest current) {
+    return previous.getJars().stream().map(ClasspathManifest.Jar::getSha256).toList()
+        .equals(current.getJars().stream().map(ClasspathManifest.Jar::getSha256).toList());
+  }
+
+  /**
+   * Delete the entries no longer on the classpath and write the entries that are new or whose
+   * content changed.
+   *
+   * @param outputPath {@link Path}
+   * @param previous {@link ClasspathManifest}, null if the directory is empty
+   * @param current {@link ClasspathManifest}
+   * @throws IOException IOException
+   */
+  private void update(final Path outputPath, final ClasspathManifest previous,
+      final ClasspathManifest current) throws IOException {
+
+    Map<String, ClasspathManifest.Entry> before =
+        previous != null ? previous.getEntries() : Map.of();
+    Map<String, ClasspathManifest.Entry> after = current.getEntries();
+
+    int deleted = 0;
+    for (String name : before.keySet()) {
+      if (!after.containsKey(name)) {
+        Files.deleteIfExists(Path.of(outputPath.toString(), name));
+        deleted++;
+      }
+    }
+
+    WorkQueue queue = this.workerExecutor != null ? this.workerExecutor.noIsolation() : null;
+
+    int written = 0;
+    for (ClasspathManifest.Jar jar : current.getJars()) {
+
+      Set<String> changed = new LinkedHashSet<>();
+      for (Map.Entry<String, ClasspathManifest.Entry> e : jar.getEntries().entrySet()) {
+        if (!Objects.equals(before.get(e.getKey()), e.getValue())) {
+          changed.add(e.getKey());
+        }
+      }
+
+      if (changed.isEmpty()) {
+        continue;
+      }
+
+      if (this.classStore != null) {
+        link(outputPath, jar, changed);
+        written += changed.size();
+        continue;
+      }
+
+      // replace rather than overwrite, the file may be a hard link into a class store
+      for (String name : changed) {
+        if (before.containsKey(name)) {
+          Files.deleteIfExists(Path.of(outputPath.toString(), name));
+        }
+      }
+
+      if (queue != null) {
+        queue.submit(ExplodeJarWorkAction.class, params -> {
+          params.getJar().set(new File(jar.getPath()));
+          params.getOutputDirectory().set(outputPath.toFile());
+          params.getEntries().set(changed);
+        });
+      } else {
+        this.archiveUtils.decompressEntries(new File(jar.getPath()), outputPath.toFile(),
+            changed);
+      }
+
+      written += changed.size();
+    }
+
+    if (queue != null) {
+      queue.await();
+    }
+
+    LOGGER.log(Level.INFO, "Exploded classpath " + outputPath + ": " + written + " written, "
+        + deleted + " deleted, " + (after.size() - written) + " unchanged");
+  }
+
+  private void link(final Path outputPath, final ClasspathManifest.Jar jar,
+      final Set<String> names) throws IOException {
+    Path classes = this.classStore.explode(new File(jar.getPath()), jar.getSha256());
+    for (String name : names) {
+      this.classStore.link(Path.of(classes.toString(), name), Path.of(outputPath.toString(), name));
+    }
+  }
+
+  private static String sha256(final File file) throws IOException {
+    MessageDigest digest = SequentialDigest.sha256();
+    try (InputStream in = new DigestInputStream(Files.newInputStream(file.toPath()), digest)) {
+      in.transferTo(OutputStream.nullOutputStream());
+    }
+    return HexFormat.of().formatHex(digest.digest());
   }
 }
@@ -0,0 +1,228 @@
+/**
+ * Copyright [2020] FormKiQ Inc. Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the License
+ * at
+ *
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.formkiq.gradle;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+import org.gradle.testkit.runner.BuildResult;
+import org.gradle.testkit.runner.GradleRunner;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+/**
+ * Configuration time and heap allocation of generated multi-project builds with and without the
+ * plugin applied. Run with the configurationBenchmark task, the plugin's overhead per project must
+ * stay below the graalvm.benchmark.maxMillisPerProject and graalvm.benchmark.maxBytesPerProject
+ * thresholds, both when only projects are configured ("help") and when the task graph is built
+ * ("assemble --dry-run"), which realizes and configures the plugin's lazily registered tasks.
+ */
+@Tag("benchmark")
+public class GraalvmNativePluginConfigurationBenchmarkTest {
+
+  /** Default subproject counts. */
+  private static final String DEFAULT_PROJECTS = "10,100,500";
+
+  /** Default maximum configuration time the plugin adds per project. */
+  private static final long DEFAULT_MAX_MILLIS_PER_PROJECT = 10;
+
+  /** Default maximum heap the plugin allocates per project (4 MB). */
+  private static final long DEFAULT_MAX_BYTES_PER_PROJECT = 4L * 1024 * 1024;
+
+  /** Builds run before measuring, so the daemon is warm. */
+  private static final int WARMUPS = 1;
+
+  /** Measured builds, the lowest values are kept. */
+  private static final int RUNS = 3;
+
+  /** Line the fixture prints once the task graph is ready. */
+  private static final Pattern RESULT =
+      Pattern.compile("BENCHMARK millis=(\\d+) allocated=(\\d+)");
+
+  /**
+   * Fixture settings, measuring from the settings script until the task graph is ready on the
+   * configuring thread, so it covers both project evaluation and the configuration of the tasks
+   * that are scheduled.
+   */
+  private static final String SETTINGS = """
+      def threads = java.lang.management.ManagementFactory.getThreadMXBean()
+      def thread = Thread.currentThread().id
+      def start = System.nanoTime()
+      def allocated = threads.getThreadAllocatedBytes(thread)
+      gradle.projectsEvaluated {
+        gradle.taskGraph.whenReady {
+          println "BENCHMARK millis=${(System.nanoTime() - start).intdiv(1000000)} " +
+              "allocated=${threads.getThreadAllocatedBytes(thread) - allocated}"
+        }
+      }
+      rootProject.name = 'fixture'
+      """;
+
+  /**
+   * Subproject counts to measure.
+   *
+   * @return {@link IntStream}
+   */
+  static IntStream projectCounts() {
+    return Arrays.stream(System.getProperty("graalvm.benchmark.projects", DEFAULT_PROJECTS)
+        .split(",")).map(String::trim).mapToInt(Integer::parseInt);
+  }
+
+  private static long longProperty(final String name, final long defaultValue) {
+    String value = System.getProperty(name);
+    return value != null ? Long.parseLong(value) : defaultValue;
+  }
+
+  /**
+   * Write a fixture with a number of subprojects.
+   *
+   * @param dir {@link Path}
+   * @param projects number of subprojects
+   * @param applyPlugin whether the subprojects apply the plugin
+   * @throws IOException IOException
+   */
+  private static void writeFixture(final Path dir, final int projects, final boolean applyPlugin)
+      throws IOException {
+
+    Files.createDirectories(dir);
+    StringBuilder settings = new StringBuilder(SETTINGS);
+
+    for (int i = 0; i < projects; i++) {
+      String name = "app" + i;
+      settings.append("include '").append(name).append("'\n");
+
+      String buildFile = applyPlugin
+          ? "plugins {\n  id 'java'\n  id 'com.formkiq.gradle.graalvm-native-plugin'\n}\n"
+              + "nativeImage {\n  mainClassName = 'com.example.Main" + i + "'\n}\n"
+          : "plugins {\n  id 'java'\n}\n";
+
+      Path project = Files.createDirectories(dir.resolve(name));
+      Files.writeString(project.resolve("build.gradle"), buildFile);
+    }
+
+    Files.writeString(dir.resolve("settings.gradle"), settings.toString());
+  }
+
+  /**
+   * Configure a fixture, returning the lowest configuration time and allocation of the measured
+   * builds.
+   *
+   * @param dir {@link Path}
+   * @param tasks tasks and arguments to run
+   * @return long[] milliseconds and bytes
+   */
+  private static long[] measure(final Path dir, final String... tasks) {
+
+    long millis = Long.MAX_VALUE;
+    long allocated = Long.MAX_VALUE;
+
+    for (int i = 0; i < WARMUPS + RUNS; i++) {
+      List<String> arguments = new ArrayList<>(List.of(tasks));
+      arguments.add("--no-configuration-cache");
+      BuildResult result = GradleRunner.create().withProjectDir(dir.toFile())
+          .withPluginClasspath().withArguments(arguments).build();
+
+      Matcher matcher = RESULT.matcher(result.getOutput());
+      assertTrue(matcher.find(), result.getOutput());
+
+      if (i >= WARMUPS) {
+        millis = Math.min(millis, Long.parseLong(matcher.group(1)));
+        allocated = Math.min(allocated, Long.parseLong(matcher.group(2)));
+      }
+    }
+
+    return new long[] {millis, allocated};
+  }
+
+  private static void report(final String line) throws IOException {
+    System.out.println(line);
+
+    String reportDir = System.getProperty("graalvm.benchmark.reportDir");
+    if (reportDir != null) {
+      Path file = Files.createDirectories(Path.of(reportDir)).resolve("results.csv");
+      if (!Files.exists(file)) {
+        Files.writeString(file,
+            "projects,tasks,millisWithout,millisWith,bytesWithout,bytesWith\n");
+      }
+      Files.writeString(file, line + "\n", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+    }
+  }
+
+  /**
+   * Measure the plugin's configuration overhead.
+   *
+   * @param projects number of subprojects
+   * @param dir {@link Path}
+   * @throws IOException IOException
+   */
+  @ParameterizedTest
+  @MethodSource("projectCounts")
+  public void configurationOverhead(final int projects, @TempDir final Path dir)
+      throws IOException {
+    // given
+    writeFixture(dir.resolve("without"), projects, false);
+    writeFixture(dir.resolve("with"), projects, true);
+
+    // when
+    long[] withoutHelp = measure(dir.resolve("without"), "help");
+    long[] withHelp = measure(dir.resolve("with"), "help");
+    long[] withoutGraph = measure(dir.resolve("without"), "assemble", "--dry-run");
+    long[] withGraph = measure(dir.resolve("with"), "assemble", "--dry-run");
+
+    // then
+    assertOverhead(projects, "help", withoutHelp, withHelp);
+    assertOverhead(projects, "assemble --dry-run", withoutGraph, withGraph);
+  }
+
+  /**
+   * Report a measurement and check the plugin's overhead per project against the thresholds.
+   *
+   * @param projects number of subprojects
+   * @param tasks tasks that were run
+   * @param without milliseconds and bytes without the plugin
+   * @param with milliseconds and bytes with the plugin
+   * @throws IOException IOException
+   */
+  private static void assertOverhead(final int projects, final String tasks, final long[] without,
+      final long[] with) throws IOException {
+
+    report(projects + "," + tasks + "," + without[0] + "," + with[0] + "," + without[1] + ","
+        + with[1]);
+
+    long maxMillis =
+        longProperty("graalvm.benchmark.maxMillisPerProject", DEFAULT_MAX_MILLIS_PER_PROJECT);
+    long maxBytes =
+        longProperty("graalvm.benchmark.maxBytesPerProject", DEFAULT_MAX_BYTES_PER_PROJECT);
+
+    long millisPerProject = (with[0] - without[0]) / projects;
+    long bytesPerProject = (with[1] - without[1]) / projects;
+    assertTrue(millisPerProject <= maxMillis, tasks + ": plugin adds " + millisPerProject
+        + " ms per project, more than " + maxMillis + " ms");
+    assertTrue(bytesPerProject <= maxBytes, tasks + ": plugin allocates " + bytesPerProject
+        + " bytes per project, more than " + maxBytes + " bytes");
+  }
+}
@@ -0,0 +1,78 @@
+/**
+ * Copyright [2020] FormKiQ Inc. Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You may obtain a copy of the License
+ * at
+ *
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.formkiq.gradle;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.gradle.testkit.runner.BuildResult;
+import org.gradle.testkit.runner.GradleRunner;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** TestKit test of the plugin in a multi-project build with isolated projects enabled. */
+public class GraalvmNativePluginIsolatedProjectsTest {
+
+  /** Number of subprojects of the fixture. */
+  private static final int PROJECTS = 3;
+
+  /**
+   * Write a multi-project fixture, every subproject applying the plugin.
+   *
+   * @param dir {@link Path}
+   * @throws IOException IOException
+   */
+  private static void writeFixture(final Path dir) throws IOException {
+
+    StringBuilder settings = new StringBuilder("rootProject.name = 'fixture'\n");
+
+    for (int i = 0; i < PROJECTS; i++) {
+      String name = "app" + i;
+      settings.append("include '").append(name).append("'\n");
+
+      Path project = Files.createDirectories(dir.resolve(name));
+      Files.writeString(project.resolve("build.gradle"),
+          "plugins {\n  id 'java'\n  id 'com.formkiq.gradle.graalvm-native-plugin'\n}\n"
+              + "nativeImage {\n  mainClassName = 'com.example.Main" + i + "'\n"
+              + "  reflectionConfig = 'reflect.json'\n}\n");
+    }
+
+    Files.writeString(dir.resolve("settings.gradle"), settings.toString());
+    Files.writeString(dir.resolve("gradle.properties"), "graalvm.classStoreMaxSize=1048576\n");
+  }
+
+  /** Configure every subproject with isolated projects enabled. */
+  @Test
+  public void configureWithIsolatedProjects(@TempDir final Path dir) throws IOException {
+    // given
+    writeFixture(dir);
+
+    // when
+    BuildResult result = GradleRunner.create().withProjectDir(dir.toFile()).withPluginClasspath()
+        .withArguments("-Dorg.gradle.unsafe.isolated-projects=true", "graalvmNativeImage",
+            "--dry-run")
+        .build();
+
+    // then
+    for (int i = 0; i < PROJECTS; i++) {
+      assertTrue(result.getOutput().contains(":app" + i + ":graalvmNativeImage SKIPPED"),
+          result.getOutput());
+    }
+    assertTrue(result.getOutput().contains("Configuration cache entry stored"),
+        result.getOutput());
+  }
+}
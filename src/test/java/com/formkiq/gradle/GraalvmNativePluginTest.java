@@ -14,10 +14,22 @@
  */
 package com.formkiq.gradle;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.util.Set;
 
 import org.gradle.api.Project;
+import org.gradle.api.Task;
 import org.gradle.api.internal.project.ProjectInternal;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.SourceSet;
+import org.gradle.api.tasks.SourceSetContainer;
 import org.gradle.testfixtures.ProjectBuilder;
 import org.junit.jupiter.api.Test;
 
@@ -37,6 +49,29 @@ public class GraalvmNativePluginTest {
 
     // Verify the result
     assertNotNull(project.getTasks().findByName("graalvmNativeImage"));
+    assertNotNull(project.getTasks().findByName("graalvmProvisionToolchain"));
+    assertNotNull(project.getTasks().findByName("graalvmClasspath"));
+  }
+
+  /** Test the native image task does not depend on the tests. */
+  @Test
+  public void pluginDoesNotDependOnTest() {
+    // given
+    Project project = ProjectBuilder.builder().build();
+    project.getPlugins().apply("java-gradle-plugin");
+    project.getPlugins().apply("com.formkiq.gradle.graalvm-native-plugin");
+    project.getExtensions().getByType(GraalvmNativeExtension.class)
+        .setMainClassName("com.example.Main");
+    ((ProjectInternal) project).evaluate();
+
+    // when
+    Task task = project.getTasks().getByName("graalvmNativeImage");
+    Set<? extends Task> dependencies = task.getTaskDependencies().getDependencies(task);
+
+    // then
+    assertTrue(dependencies.contains(project.getTasks().getByName("graalvmProvisionToolchain")));
+    assertTrue(dependencies.contains(project.getTasks().getByName("graalvmClasspath")));
+    assertFalse(dependencies.contains(project.getTasks().getByName("test")));
   }
 
   /** Test Registering Task with dockerFile. */
@@ -52,4 +87,78 @@ public class GraalvmNativePluginTest {
     // Verify the result
     assertNotNull(project.getTasks().findByName("graalvmNativeImage"));
   }
+
+  /** Test path-bearing options are file inputs and not spec inputs. */
+  @Test
+  public void pluginRegistersPathInputs() throws NoSuchMethodException {
+    // given
+    Project project = ProjectBuilder.builder().build();
+    project.getPlugins().apply("java-gradle-plugin");
+    project.getPlugins().apply("com.formkiq.gradle.graalvm-native-plugin");
+    GraalvmNativeExtension ext = project.getExtensions().getByType(GraalvmNativeExtension.class);
+    ext.setMainClassName("com.example.Main");
+    ext.setReflectionConfig("reflect.json");
+    ext.setAddClasspath("lib/a.jar,lib/b.jar");
+    File imageFile = new File(project.getProjectDir(), "graalvm.tar.gz");
+    ext.setImageFile(imageFile.getAbsolutePath());
+    ((ProjectInternal) project).evaluate();
+
+    // when
+    GraalvmNativeTask task = (GraalvmNativeTask) project.getTasks().getByName("graalvmNativeImage");
+
+    // then
+    assertEquals(Set.of(new File(project.getProjectDir(), "reflect.json")),
+        task.getReflectionConfigFiles().getFiles());
+    assertEquals(2, task.getAdditionalClasspath().getFiles().size());
+    assertNotNull(
+        NativeImageSpec.class.getMethod("getReflectionConfig").getAnnotation(Internal.class));
+    assertNotNull(NativeImageSpec.class.getMethod("getAddClasspath").getAnnotation(Internal.class));
+    assertEquals(imageFile, task.getImageArchive().get().getAsFile());
+    assertEquals(PathSensitivity.NONE, GraalvmNativeTask.class.getMethod("getImageArchive")
+        .getAnnotation(PathSensitive.class).value());
+    assertEquals(PathSensitivity.NONE, GraalvmProvisionTask.class.getMethod("getImageFile")
+        .getAnnotation(PathSensitive.class).value());
+  }
+
+  /** Test the native-image spec is read from the extension lazily. */
+  @Test
+  public void pluginReadsExtensionLazily() {
+    // given
+    Project project = ProjectBuilder.builder().build();
+    project.getPlugins().apply("java-gradle-plugin");
+    project.getPlugins().apply("com.formkiq.gradle.graalvm-native-plugin");
+    GraalvmNativeExtension ext = project.getExtensions().getByType(GraalvmNativeExtension.class);
+    ext.setMainClassName("com.example.Main");
+    ((ProjectInternal) project).evaluate();
+    GraalvmNativeTask task = (GraalvmNativeTask) project.getTasks().getByName("graalvmNativeImage");
+
+    // when
+    ext.setMainClassName("com.example.Other");
+    ext.setEnableStatic(Boolean.TRUE);
+
+    // then
+    NativeImageSpec spec = task.getSpec().get();
+    assertEquals("com.example.Other", spec.getMainClassName());
+    assertTrue(spec.isEnableStatic());
+  }
+
+  /** Test the native image task is keyed on the compiled classes, not the sources. */
+  @Test
+  public void pluginUsesCompiledClasses() {
+    // given
+    Project project = ProjectBuilder.builder().build();
+    project.getPlugins().apply("java-gradle-plugin");
+    project.getPlugins().apply("com.formkiq.gradle.graalvm-native-plugin");
+    project.getExtensions().getByType(GraalvmNativeExtension.class)
+        .setMainClassName("com.example.Main");
+    ((ProjectInternal) project).evaluate();
+
+    // when
+    GraalvmNativeTask task = (GraalvmNativeTask) project.getTasks().getByName("graalvmNativeImage");
+
+    // then
+    SourceSet main = project.getExtensions().getByType(SourceSetContainer.class)
+        .getByName(SourceSet.MAIN_SOURCE_SET_NAME);
+    assertEquals(main.getOutput().getClassesDirs().getFiles(), task.getClasses().getFiles());
+  }
 }
@@ -2,6 +2,7 @@ package com.formkiq.gradle;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.List;
 import org.gradle.api.Project;
@@ -20,7 +21,7 @@ class GraalvmParameterToStringsTest {
     GraalvmNativeExtension extension = new GraalvmNativeExtension(objects);
 
     // Act: generate the argument list
-    List<String> args = new GraalvmParameterToStrings().apply(extension);
+    List<String> args = new GraalvmParameterToStrings().apply(NativeImageSpec.of(extension));
 
     // Assert: since enableHttp and enableHttps default to true, expect exactly those two flags
     List<String> expected = List.of("--enable-http", "--enable-https");
@@ -75,7 +76,7 @@ class GraalvmParameterToStringsTest {
     extension.setEnableReportUnsupportedElementsAtRuntime(true); // "-H:+ReportUnsupportedElementsAtRuntime"
 
     // Act: generate the full argument list
-    List<String> args = new GraalvmParameterToStrings().apply(extension);
+    List<String> args = new GraalvmParameterToStrings().apply(NativeImageSpec.of(extension));
 
     // Assert: verify that the arguments appear in exactly the same order they are added in
     // apply(...)
@@ -113,11 +114,27 @@ class GraalvmParameterToStringsTest {
     extension.setBuildOptions("-Os -H:-ReduceImplicitExceptionStackTraceInformation");
 
     // when
-    List<String> args = new GraalvmParameterToStrings().apply(extension);
+    List<String> args = new GraalvmParameterToStrings().apply(NativeImageSpec.of(extension));
 
     // then
     List<String> expected = List.of("-Os", "-H:-ReduceImplicitExceptionStackTraceInformation",
         "--enable-http", "--enable-https");
     assertEquals(expected, args);
   }
+
+  @Test
+  void testBaseDirectory() {
+    // given
+    Project project = ProjectBuilder.builder().build();
+    GraalvmNativeExtension extension = new GraalvmNativeExtension(project.getObjects());
+    extension.setJniConfigurationFiles("jni.json, conf/jni2.json");
+    Path baseDir = project.getProjectDir().toPath();
+
+    // when
+    List<String> args = new GraalvmParameterToStrings(baseDir).apply(NativeImageSpec.of(extension));
+
+    // then
+    assertEquals("-H:JNIConfigurationFiles=" + baseDir.resolve("jni.json").toAbsolutePath() + ","
+        + baseDir.resolve("conf/jni2.json").toAbsolutePath(), args.get(2));
+  }
 }
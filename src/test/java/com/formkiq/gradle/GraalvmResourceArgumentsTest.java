@@ -0,0 +1,87 @@
+package com.formkiq.gradle;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import org.gradle.api.Project;
+import org.gradle.testfixtures.ProjectBuilder;
+import org.junit.jupiter.api.Test;
+
+/** Unit tests for {@link GraalvmResourceArguments}. */
+class GraalvmResourceArgumentsTest {
+
+  /** 1 GB. */
+  private static final long GB = 1024L * 1024 * 1024;
+
+  private static GraalvmNativeExtension extension() {
+    Project project = ProjectBuilder.builder().build();
+    return new GraalvmNativeExtension(project.getObjects());
+  }
+
+  /** Heap and threads follow the granted memory and CPUs. */
+  @Test
+  void testGranted() {
+    // given
+    GraalvmNativeExtension extension = extension();
+    final int cpus = 4;
+
+    // when
+    List<String> args =
+        new GraalvmResourceArguments(8 * GB, cpus, "24.0.1").apply(NativeImageSpec.of(extension));
+
+    // then
+    assertEquals(List.of("-J-Xmx6144m", "--parallelism=4"), args);
+  }
+
+  /** Small grants still get the minimum heap. */
+  @Test
+  void testMinimumHeap() {
+    // given
+    GraalvmNativeExtension extension = extension();
+
+    // when
+    List<String> args =
+        new GraalvmResourceArguments(GB, 0, "17.0.8").apply(NativeImageSpec.of(extension));
+
+    // then
+    assertEquals(List.of("-J-Xmx1024m", "--parallelism=1"), args);
+  }
+
+  /** User overrides and build options are kept. */
+  @Test
+  void testOverrides() {
+    // given
+    GraalvmNativeExtension extension = extension();
+    extension.setBuilderMaxHeap("6g");
+    extension.setBuildOptions("-Os --parallelism=3");
+
+    // when
+    List<String> args =
+        new GraalvmResourceArguments(8 * GB, 8, "24.0.1").apply(NativeImageSpec.of(extension));
+
+    // then
+    assertEquals(List.of("-J-Xmx6g"), args);
+  }
+
+  /** Legacy releases do not get --parallelism. */
+  @Test
+  void testLegacyVersion() {
+    // given
+    GraalvmNativeExtension extension = extension();
+
+    // when
+    List<String> args =
+        new GraalvmResourceArguments(8 * GB, 4, "22.3.1").apply(NativeImageSpec.of(extension));
+
+    // then
+    assertEquals(List.of("-J-Xmx6144m"), args);
+    assertTrue(GraalvmResourceArguments.supportsParallelism("21.0.2"));
+    assertTrue(GraalvmResourceArguments.supportsParallelism("20.0.1"));
+    assertFalse(GraalvmResourceArguments.supportsParallelism("20.0.0"));
+    assertFalse(GraalvmResourceArguments.supportsParallelism("21.0.0.2"));
+    assertFalse(GraalvmResourceArguments.supportsParallelism("19.3.6"));
+    assertFalse(GraalvmResourceArguments.supportsParallelism("latest"));
+  }
+}
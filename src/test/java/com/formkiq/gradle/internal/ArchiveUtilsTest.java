@@ -0,0 +1,102 @@
+package com.formkiq.gradle.internal;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Unit tests for {@link ArchiveUtils}. */
+class ArchiveUtilsTest {
+
+  /** Temp Directory. */
+  @TempDir
+  private Path tempDir;
+
+  /**
+   * Create a .tar.gz archive.
+   *
+   * @param entries alternating entry name and content
+   * @return byte[]
+   * @throws IOException IOException
+   */
+  static byte[] tarGzip(final Object... entries) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (TarArchiveOutputStream out =
+        new TarArchiveOutputStream(new GzipCompressorOutputStream(bytes))) {
+      out.setLongFileMode(TarArchiveOutputStream.LONGFILE_POSIX);
+      for (int i = 0; i < entries.length; i += 2) {
+        byte[] content = (byte[]) entries[i + 1];
+        TarArchiveEntry entry = new TarArchiveEntry((String) entries[i]);
+        entry.setSize(content.length);
+        entry.setMode(0100755);
+        out.putArchiveEntry(entry);
+        out.write(content);
+        out.closeArchiveEntry();
+      }
+    }
+    return bytes.toByteArray();
+  }
+
+  /** Decompress a .jar in parallel, existing files are kept. */
+  @Test
+  void testDecompressJar() throws IOException {
+    // given
+    final int count = 200;
+    Path jar = tempDir.resolve("test.jar");
+    try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(jar))) {
+      out.putNextEntry(new ZipEntry("com/formkiq/"));
+      for (int i = 0; i < count; i++) {
+        out.putNextEntry(new ZipEntry("com/formkiq/p" + (i % 10) + "/Class" + i + ".class"));
+        out.write(("class " + i).getBytes(StandardCharsets.UTF_8));
+      }
+    }
+
+    Path outputDir = tempDir.resolve("main");
+    Files.createDirectories(outputDir.resolve("com/formkiq/p0"));
+    Files.writeString(outputDir.resolve("com/formkiq/p0/Class0.class"), "existing");
+
+    // when
+    new ArchiveUtils().decompressJar(jar.toFile(), outputDir.toFile());
+
+    // then
+    assertEquals("existing", Files.readString(outputDir.resolve("com/formkiq/p0/Class0.class")));
+    for (int i = 1; i < count; i++) {
+      assertEquals("class " + i, Files.readString(
+          outputDir.resolve("com/formkiq/p" + (i % 10) + "/Class" + i + ".class")));
+    }
+  }
+
+  /** Decompress a .tar.gz stream. */
+  @Test
+  void testDecompressTarGZipStream() throws IOException {
+    // given
+    byte[] large = new byte[3 * 1024 * 1024 + 7];
+    new Random(1).nextBytes(large);
+    byte[] small = "native-image".getBytes(StandardCharsets.UTF_8);
+    byte[] archive = tarGzip("graalvm/lib/modules", large, "graalvm/bin/native-image", small);
+    Path outputDir = tempDir.resolve("dist");
+
+    // when
+    new ArchiveUtils().decompressTarGZip(new ByteArrayInputStream(archive), outputDir.toFile());
+
+    // then
+    assertArrayEquals(large, Files.readAllBytes(outputDir.resolve("graalvm/lib/modules")));
+    assertEquals("native-image",
+        Files.readString(outputDir.resolve("graalvm/bin/native-image")));
+    assertTrue(Files.isExecutable(outputDir.resolve("graalvm/bin/native-image")));
+  }
+}
@@ -0,0 +1,80 @@
+package com.formkiq.gradle.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Unit tests for {@link BuildScheduler}. */
+class BuildSchedulerTest {
+
+  /** 1 GB. */
+  private static final long GB = 1024L * 1024 * 1024;
+
+  /** Temp Directory. */
+  @TempDir
+  private Path tempDir;
+
+  /** Builds are admitted while they fit, the others wait. */
+  @Test
+  void testAdmit() throws Exception {
+    // given
+    final int cpus = 16;
+    BuildScheduler scheduler = new BuildScheduler(10 * GB, cpus, null);
+    CountDownLatch admitted = new CountDownLatch(1);
+
+    // when
+    BuildScheduler.Admission a = scheduler.admit(":a", 4 * GB, 2);
+    BuildScheduler.Admission b = scheduler.admit(":b", 4 * GB, 2);
+    Thread c = new Thread(() -> {
+      try (BuildScheduler.Admission admission = scheduler.admit(":c", 4 * GB, 2)) {
+        admitted.countDown();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    c.start();
+
+    // then
+    assertFalse(admitted.await(200, TimeUnit.MILLISECONDS));
+    assertEquals(cpus - 2, b.getCpus());
+    assertEquals(BuildScheduler.DEFAULT_MEMORY, a.getBuilderMemory());
+    assertEquals(5 * GB, b.getBuilderMemory());
+
+    a.close();
+    assertTrue(admitted.await(10, TimeUnit.SECONDS));
+    b.close();
+    c.join();
+  }
+
+  /** Footprints are learned from previous runs and persisted. */
+  @Test
+  void testRecord() throws Exception {
+    // given
+    Path file = tempDir.resolve("footprints.properties");
+    BuildScheduler scheduler = new BuildScheduler(64 * GB, 32, file);
+    final double cpuLoad = 7.6;
+
+    // when
+    scheduler.record(":app:graalvmNativeImage", 2 * GB, cpuLoad);
+
+    // then
+    BuildScheduler next = new BuildScheduler(64 * GB, 32, file);
+    assertEquals(3 * GB, next.estimateMemory(":app:graalvmNativeImage"));
+    assertEquals(10, next.estimateCpus(":app:graalvmNativeImage"));
+    assertEquals(BuildScheduler.DEFAULT_MEMORY, next.estimateMemory(":other"));
+    try (BuildScheduler.Admission admission = next.admit(":app:graalvmNativeImage", -1, -1)) {
+      assertEquals(BuildScheduler.DEFAULT_MEMORY, admission.getBuilderMemory());
+    }
+    try (BuildScheduler.Admission admission =
+        new BuildScheduler(4 * GB, 2, file).admit(":app:graalvmNativeImage", -1, -1)) {
+      assertEquals(4 * GB, admission.getBuilderMemory());
+    }
+    assertEquals(6 * GB, BuildScheduler.parseSize("6g"));
+  }
+}
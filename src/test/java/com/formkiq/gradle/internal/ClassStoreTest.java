@@ -0,0 +1,51 @@
+package com.formkiq.gradle.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Unit tests for {@link ClassStore}. */
+class ClassStoreTest {
+
+  /** Temp Directory. */
+  @TempDir
+  private Path tempDir;
+
+  /** A jar is exploded once and linked into every project. */
+  @Test
+  void testExplodeAndLink() throws IOException {
+    // given
+    Path jar = tempDir.resolve("a.jar");
+    try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(jar))) {
+      out.putNextEntry(new ZipEntry("a/A.class"));
+      out.write("A".getBytes(StandardCharsets.UTF_8));
+    }
+
+    ClassStore store = new ClassStore(tempDir.resolve("store"), ClassStore.DEFAULT_MAX_SIZE);
+    Path project1 = tempDir.resolve("p1/a/A.class");
+    Path project2 = tempDir.resolve("p2/a/A.class");
+    Files.createDirectories(project2.getParent());
+    Files.writeString(project2, "old");
+
+    // when
+    Path classes = store.explode(jar.toFile(), "abc");
+    Files.delete(jar);
+    Path again = store.explode(jar.toFile(), "abc");
+    store.link(classes.resolve("a/A.class"), project1);
+    store.link(again.resolve("a/A.class"), project2);
+
+    // then
+    assertEquals(classes, again);
+    assertEquals("A", Files.readString(project1));
+    assertEquals("A", Files.readString(project2));
+    assertTrue(Files.isSameFile(project1, project2));
+  }
+}
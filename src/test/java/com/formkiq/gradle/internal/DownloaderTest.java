@@ -0,0 +1,457 @@
+package com.formkiq.gradle.internal;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Unit tests for {@link Downloader}. */
+class DownloaderTest {
+
+  /** File Size. */
+  private static final int SIZE = 1024 * 1024 + 123;
+
+  /** Stall time in milliseconds. */
+  private static final long STALL = 10000;
+
+  /** Slow mirror response time in milliseconds. */
+  private static final long SLOW = 500;
+
+  /** Test Data. */
+  private final byte[] data = new byte[SIZE];
+
+  /** Number of Range requests received. */
+  private final AtomicInteger rangeRequests = new AtomicInteger();
+
+  /** Number of body stalls left. */
+  private final AtomicInteger bodyStalls = new AtomicInteger(1);
+
+  /** Published SHA-256. */
+  private String publishedSha256;
+
+  /** Number of published SHA-256 requests failed with a server error. */
+  private final AtomicInteger checksumErrors = new AtomicInteger();
+
+  /** {@link HttpServer}. */
+  private HttpServer server;
+
+  /** Temp Directory. */
+  @TempDir
+  private Path tempDir;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    new Random(1).nextBytes(data);
+    publishedSha256 = sha256(data);
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext("/ranges", e -> serve(e, true));
+    server.createContext("/noranges", e -> serve(e, false));
+    server.createContext("/published", e -> serve(e, true));
+    server.createContext("/published.sha256", e -> {
+      byte[] body = (publishedSha256 + "  published.tar.gz\n").getBytes(StandardCharsets.UTF_8);
+      e.sendResponseHeaders(200, body.length);
+      try (OutputStream os = e.getResponseBody()) {
+        os.write(body);
+      }
+      e.close();
+    });
+    server.createContext("/unavailable", e -> serve(e, true));
+    server.createContext("/unavailable.sha256", e -> {
+      checksumErrors.incrementAndGet();
+      e.sendResponseHeaders(503, -1);
+      e.close();
+    });
+    server.createContext("/stall", e -> {
+      try {
+        Thread.sleep(STALL);
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+      }
+      e.close();
+    });
+    server.createContext("/stallbody", e -> {
+      if (!"/stallbody".equals(e.getRequestURI().getPath())) {
+        e.sendResponseHeaders(404, -1);
+        e.close();
+      } else if (!"HEAD".equals(e.getRequestMethod()) && bodyStalls.getAndDecrement() > 0) {
+        stallBody(e);
+      } else {
+        serve(e, true);
+      }
+    });
+    server.createContext("/slowmirror", e -> {
+      try {
+        Thread.sleep(SLOW);
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+      }
+      serve(e, false);
+    });
+    server.setExecutor(Executors.newCachedThreadPool());
+    server.start();
+  }
+
+  @AfterEach
+  void tearDown() {
+    server.stop(0);
+  }
+
+  private String url(final String path) {
+    return "http://127.0.0.1:" + server.getAddress().getPort() + path;
+  }
+
+  private void serve(final HttpExchange exchange, final boolean ranges) throws IOException {
+
+    // contexts match by prefix, "<path>.sha256" is not published
+    if (!exchange.getHttpContext().getPath().equals(exchange.getRequestURI().getPath())) {
+      exchange.sendResponseHeaders(404, -1);
+      exchange.close();
+      return;
+    }
+
+    String range = exchange.getRequestHeaders().getFirst("Range");
+    int first = 0;
+    int last = SIZE - 1;
+    int status = 200;
+
+    if (ranges) {
+      exchange.getResponseHeaders().add("Accept-Ranges", "bytes");
+      if (range != null) {
+        String[] s = range.substring("bytes=".length()).split("-");
+        first = Integer.parseInt(s[0]);
+        last = s.length > 1 && !s[1].isEmpty() ? Integer.parseInt(s[1]) : SIZE - 1;
+        status = 206;
+        rangeRequests.incrementAndGet();
+      }
+    }
+
+    int length = last - first + 1;
+    if ("HEAD".equals(exchange.getRequestMethod())) {
+      exchange.getResponseHeaders().add("Content-Length", String.valueOf(length));
+      exchange.sendResponseHeaders(status, -1);
+    } else {
+      exchange.sendResponseHeaders(status, length);
+      try (OutputStream os = exchange.getResponseBody()) {
+        os.write(data, first, length);
+      }
+    }
+    exchange.close();
+  }
+
+  private void stallBody(final HttpExchange exchange) throws IOException {
+    exchange.getResponseHeaders().add("Accept-Ranges", "bytes");
+    exchange.sendResponseHeaders(exchange.getRequestHeaders().containsKey("Range") ? 206 : 200,
+        0);
+    try (OutputStream os = exchange.getResponseBody()) {
+      os.write(data, 0, 1024);
+      os.flush();
+      Thread.sleep(STALL);
+    } catch (InterruptedException | IOException e) {
+      Thread.currentThread().interrupt();
+    }
+    exchange.close();
+  }
+
+  /** Download using Range requests. */
+  @Test
+  void testDownloadSegments() throws IOException {
+    // given
+    Path toFile = tempDir.resolve("segments.tar.gz");
+    final int segmentSize = 64 * 1024;
+
+    // when
+    new Downloader(4, segmentSize).download(List.of(url("/ranges")), toFile);
+
+    // then
+    assertArrayEquals(data, Files.readAllBytes(toFile));
+    assertTrue(rangeRequests.get() >= SIZE / segmentSize);
+  }
+
+  /** Resume an interrupted download from its journal. */
+  @Test
+  void testDownloadResume() throws IOException {
+    // given
+    Path toFile = tempDir.resolve("resume.tar.gz");
+    Path partFile = tempDir.resolve("resume.tar.gz.part");
+    Path journalFile = tempDir.resolve("resume.tar.gz.part.journal");
+    final int segmentSize = 64 * 1024;
+    final int completed = SIZE - segmentSize;
+
+    byte[] partial = new byte[completed];
+    System.arraycopy(data, 0, partial, 0, completed);
+    Files.write(partFile, partial);
+    Files.writeString(journalFile, "v1 " + SIZE + " \n0-" + (completed - 1) + "\n");
+
+    // when
+    new Downloader(4, segmentSize).download(List.of(url("/ranges")), toFile);
+
+    // then
+    assertArrayEquals(data, Files.readAllBytes(toFile));
+    assertEquals(1, rangeRequests.get());
+    assertFalse(Files.exists(partFile));
+    assertFalse(Files.exists(journalFile));
+  }
+
+  /** A journal without its partial file is discarded. */
+  @Test
+  void testDownloadJournalWithoutPart() throws IOException {
+    // given
+    Path toFile = tempDir.resolve("nopart.tar.gz");
+    Path journalFile = tempDir.resolve("nopart.tar.gz.part.journal");
+    Files.writeString(journalFile, "v1 " + SIZE + " \n0-" + (SIZE - 1) + "\n");
+
+    // when
+    new Downloader(2, SIZE).download(List.of(url("/ranges")), toFile);
+
+    // then
+    assertArrayEquals(data, Files.readAllBytes(toFile));
+  }
+
+  /** Download falls back to a single stream without "Accept-Ranges". */
+  @Test
+  void testDownloadNoRanges() throws IOException {
+    // given
+    Path toFile = tempDir.resolve("stream.tar.gz");
+
+    // when
+    new Downloader(4, 1024).download(List.of(url("/missing"), url("/noranges")), toFile);
+
+    // then
+    assertArrayEquals(data, Files.readAllBytes(toFile));
+  }
+
+  /** A stalled candidate does not delay the one that answers. */
+  @Test
+  void testDownloadStalledCandidate() throws IOException {
+    // given
+    Path toFile = tempDir.resolve("stalled.tar.gz");
+    final long maxTime = 4000;
+    long start = System.currentTimeMillis();
+
+    // when
+    new Downloader().download(List.of(url("/stall"), url("/missing"), url("/ranges")), toFile);
+
+    // then
+    assertTrue(System.currentTimeMillis() - start < maxTime);
+    assertArrayEquals(data, Files.readAllBytes(toFile));
+  }
+
+  /** A segment whose body stalls times out and is retried. */
+  @Test
+  void testDownloadStalledSegment() throws IOException {
+    // given
+    Path toFile = tempDir.resolve("stalledsegment.tar.gz");
+    long start = System.currentTimeMillis();
+
+    // when
+    new Downloader(1, SIZE, Duration.ofMillis(500)).download(List.of(url("/stallbody")), toFile);
+
+    // then
+    assertTrue(System.currentTimeMillis() - start < STALL);
+    assertArrayEquals(data, Files.readAllBytes(toFile));
+  }
+
+  /** A stalled stream fails instead of blocking. */
+  @Test
+  void testDownloadStreamingStalled() {
+    // given
+    Path toFile = tempDir.resolve("stalledstream.tar.gz");
+    ByteArrayOutputStream consumed = new ByteArrayOutputStream();
+
+    // when
+    IOException e = assertThrows(IOException.class,
+        () -> new Downloader(1, SIZE, Duration.ofMillis(500)).downloadStreaming(List.of(),
+            List.of(url("/stallbody")), toFile, null, in -> in.transferTo(consumed)));
+
+    // then
+    assertTrue(e instanceof HttpTimeoutException, String.valueOf(e));
+    assertFalse(Files.exists(toFile));
+  }
+
+  /** Pinned checksum is verified. */
+  @Test
+  void testDownloadPinnedChecksum() throws IOException {
+    // given
+    Path toFile = tempDir.resolve("pinned.tar.gz");
+
+    // when
+    new Downloader(4, 64 * 1024).download(List.of(url("/ranges")), toFile, sha256(data));
+
+    // then
+    assertArrayEquals(data, Files.readAllBytes(toFile));
+    assertEquals(sha256(data), Files.readString(Downloader.getChecksumFile(toFile)));
+  }
+
+  /** Checksum mismatch rejects the download. */
+  @Test
+  void testDownloadChecksumMismatch() {
+    // given
+    Path toFile = tempDir.resolve("mismatch.tar.gz");
+    String checksum = sha256(new byte[0]);
+
+    // when
+    IOException e = assertThrows(IOException.class,
+        () -> new Downloader(4, 64 * 1024).download(List.of(url("/ranges")), toFile, checksum));
+
+    // then
+    assertTrue(e.getMessage().startsWith("Checksum mismatch"));
+    assertFalse(Files.exists(toFile));
+    assertFalse(Files.exists(tempDir.resolve("mismatch.tar.gz.part")));
+  }
+
+  /** Published checksum is used when no checksum is pinned. */
+  @Test
+  void testDownloadPublishedChecksum() throws IOException {
+    // given
+    Path toFile0 = tempDir.resolve("published0.tar.gz");
+    Path toFile1 = tempDir.resolve("published1.tar.gz");
+
+    // when
+    new Downloader(4, 64 * 1024).download(List.of(url("/published")), toFile0);
+    publishedSha256 = sha256(new byte[0]);
+
+    // then
+    assertArrayEquals(data, Files.readAllBytes(toFile0));
+    assertThrows(IOException.class,
+        () -> new Downloader(1, SIZE).download(List.of(url("/published")), toFile1));
+    assertFalse(Files.exists(toFile1));
+  }
+
+  /** A published checksum that cannot be fetched fails the download. */
+  @Test
+  void testDownloadPublishedChecksumUnavailable() {
+    // given
+    Path toFile = tempDir.resolve("unavailable.tar.gz");
+
+    // when
+    IOException e = assertThrows(IOException.class,
+        () -> new Downloader(4, 64 * 1024).download(List.of(url("/unavailable")), toFile));
+
+    // then
+    assertTrue(e.getMessage().contains("HTTP 503"));
+    assertEquals(3, checksumErrors.get());
+    assertFalse(Files.exists(toFile));
+  }
+
+  private static String sha256(final byte[] bytes) {
+    return HexFormat.of().formatHex(SequentialDigest.sha256().digest(bytes));
+  }
+
+  /** A file:// mirror is preferred over the other urls. */
+  @Test
+  void testDownloadFileMirror() throws IOException {
+    // given
+    Path mirror = tempDir.resolve("mirror");
+    Files.createDirectories(mirror);
+    byte[] mirrored = new byte[SIZE];
+    Files.write(mirror.resolve("graalvm.tar.gz"), mirrored);
+    Path toFile = tempDir.resolve("mirror.tar.gz");
+
+    // when
+    new Downloader().download(List.of(mirror.resolve("graalvm.tar.gz").toUri().toString()),
+        List.of(url("/ranges")), toFile, null);
+
+    // then
+    assertArrayEquals(mirrored, Files.readAllBytes(toFile));
+    assertEquals(0, rangeRequests.get());
+  }
+
+  /** The first mirror that exists wins, even when a later one answers first. */
+  @Test
+  void testDownloadMirrorOrder() throws IOException {
+    // given
+    Path toFile = tempDir.resolve("mirrororder.tar.gz");
+
+    // when
+    new Downloader(4, 64 * 1024).download(List.of(url("/missing"), url("/slowmirror"),
+        url("/ranges")), List.of(url("/ranges")), toFile, null);
+
+    // then
+    assertArrayEquals(data, Files.readAllBytes(toFile));
+    assertEquals(0, rangeRequests.get());
+  }
+
+  /** Missing mirrors fall back to the other urls. */
+  @Test
+  void testDownloadMissingMirror() throws IOException {
+    // given
+    Path toFile = tempDir.resolve("nomirror.tar.gz");
+
+    // when
+    new Downloader().download(
+        List.of(tempDir.resolve("missing.tar.gz").toUri().toString(), url("/missing")),
+        List.of(url("/ranges")), toFile, null);
+
+    // then
+    assertArrayEquals(data, Files.readAllBytes(toFile));
+  }
+
+  /** Streamed download is consumed while it is persisted. */
+  @Test
+  void testDownloadStreaming() throws IOException {
+    // given
+    Path toFile = tempDir.resolve("streaming.tar.gz");
+    byte[] consumed = new byte[SIZE / 2];
+
+    // when
+    String sha256 = new Downloader().downloadStreaming(List.of(), List.of(url("/noranges")),
+        toFile, sha256(data), in -> in.readNBytes(consumed, 0, consumed.length));
+
+    // then
+    assertEquals(sha256(data), sha256);
+    assertArrayEquals(Arrays.copyOf(data, consumed.length), consumed);
+    assertArrayEquals(data, Files.readAllBytes(toFile));
+    assertEquals(sha256(data), Files.readString(Downloader.getChecksumFile(toFile)));
+  }
+
+  /** Streamed download with a checksum mismatch is rejected once consumed. */
+  @Test
+  void testDownloadStreamingChecksumMismatch() {
+    // given
+    Path toFile = tempDir.resolve("streaming-mismatch.tar.gz");
+    String checksum = sha256(new byte[0]);
+    ByteArrayOutputStream consumed = new ByteArrayOutputStream();
+
+    // when
+    IOException e = assertThrows(IOException.class, () -> new Downloader().downloadStreaming(
+        List.of(), List.of(url("/ranges")), toFile, checksum, in -> in.transferTo(consumed)));
+
+    // then
+    assertTrue(e.getMessage().startsWith("Checksum mismatch"));
+    assertEquals(SIZE, consumed.size());
+    assertFalse(Files.exists(toFile));
+    assertFalse(Files.exists(tempDir.resolve("streaming-mismatch.tar.gz.part")));
+  }
+
+  /** No url found. */
+  @Test
+  void testDownloadNotFound() {
+    Path toFile = tempDir.resolve("missing.tar.gz");
+    assertThrows(FileNotFoundException.class,
+        () -> new Downloader().download(List.of(url("/missing")), toFile));
+  }
+}
@@ -0,0 +1,69 @@
+package com.formkiq.gradle.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/** Unit tests for {@link ExtractionFilter}. */
+class ExtractionFilterTest {
+
+  /** Full profile includes every entry. */
+  @Test
+  void testFull() {
+    ExtractionFilter filter = ExtractionFilter.full();
+    assertTrue(filter.include("graalvm-community-openjdk-24/lib/src.zip", 100));
+    assertEquals(0, filter.getSkippedEntries());
+  }
+
+  /** Native Image profile on the Linux / Windows layout. */
+  @Test
+  void testNativeImage() {
+    // given
+    ExtractionFilter filter = new ExtractionFilter(ExtractionFilter.PROFILE_NATIVE_IMAGE);
+    String root = "graalvm-community-openjdk-24.0.1+9.1/";
+
+    // when
+    // then
+    assertTrue(filter.include(root, 0));
+    assertTrue(filter.include(root + "bin/native-image", 10));
+    assertTrue(filter.include(root + "release", 10));
+    assertTrue(filter.include(root + "conf/security/java.security", 10));
+    assertTrue(filter.include(root + "lib/modules", 10));
+    assertTrue(filter.include(root + "lib/libjava.so", 10));
+    assertTrue(filter.include(root + "lib/jspawnhelper", 10));
+    assertTrue(filter.include(root + "lib/server/libjvm.so", 10));
+    assertTrue(filter.include(root + "lib/svm/builder/svm.jar", 10));
+    assertTrue(filter.include(root + "lib/jvmci/graal.jar", 10));
+    assertTrue(filter.include(root + "lib/installer/installer.jar", 10));
+    assertFalse(filter.include(root + "lib/src.zip", 100));
+    assertFalse(filter.include(root + "jmods/java.base.jmod", 200));
+    assertFalse(filter.include(root + "legal/java.base/LICENSE", 300));
+    assertFalse(filter.include(root + "lib/", 0));
+
+    assertEquals(4, filter.getSkippedEntries());
+    assertEquals(600, filter.getSkippedBytes());
+  }
+
+  /** Native Image profile on the macOS layout. */
+  @Test
+  void testNativeImageMacos() {
+    ExtractionFilter filter = new ExtractionFilter(ExtractionFilter.PROFILE_NATIVE_IMAGE);
+    String root = "graalvm-community-openjdk-24.0.1+9.1/";
+
+    assertTrue(filter.include(root + "Contents/", 0));
+    assertTrue(filter.include(root + "Contents/Home/", 0));
+    assertTrue(filter.include(root + "Contents/Home/bin/native-image", 10));
+    assertTrue(filter.include(root + "Contents/Home/lib/libjava.dylib", 10));
+    assertFalse(filter.include(root + "Contents/Info.plist", 10));
+    assertFalse(filter.include(root + "Contents/Home/lib/src.zip", 10));
+  }
+
+  /** Unknown profile. */
+  @Test
+  void testUnknownProfile() {
+    assertThrows(IllegalArgumentException.class, () -> new ExtractionFilter("minimal"));
+  }
+}
@@ -0,0 +1,86 @@
+package com.formkiq.gradle.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Unit tests for {@link ExtractionManifest}. */
+class ExtractionManifestTest {
+
+  /** Archive SHA-256. */
+  private static final String SHA256 =
+      "e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855";
+
+  /** Temp Directory. */
+  @TempDir
+  private Path tempDir;
+
+  /** Manifest verifies an unchanged extraction and detects changes. */
+  @Test
+  void testVerify() throws IOException {
+    // given
+    Path dist = tempDir.resolve("dist");
+    Files.createDirectories(dist.resolve("graalvm/bin"));
+    Files.createDirectories(dist.resolve("graalvm/lib"));
+    Files.writeString(dist.resolve("graalvm/bin/native-image"), "native-image");
+    Files.write(dist.resolve("graalvm/lib/modules"), new byte[1024]);
+    Files.writeString(dist.resolve("graalvm/release"), "JAVA_VERSION=24");
+    Path file = tempDir.resolve("dist.manifest");
+
+    // when
+    ExtractionManifest.create(dist, SHA256).write(file);
+    ExtractionManifest manifest = ExtractionManifest.read(file);
+
+    // then
+    assertEquals(SHA256, manifest.getArchiveSha256());
+    assertEquals(3, manifest.getFiles());
+    assertEquals(1024 + "native-image".length() + "JAVA_VERSION=24".length(),
+        manifest.getSize());
+    assertTrue(manifest.verify(dist, SHA256));
+    assertTrue(manifest.verify(dist, null));
+    assertFalse(manifest.verify(dist, SHA256.replace('e', 'f')));
+
+    Files.write(dist.resolve("graalvm/lib/modules"), new byte[1]);
+    assertFalse(manifest.verify(dist, SHA256));
+
+    Files.write(dist.resolve("graalvm/lib/modules"), new byte[1024]);
+    Files.writeString(dist.resolve("graalvm/lib/extra"), "extra");
+    assertFalse(manifest.verify(dist, SHA256));
+
+    Files.delete(dist.resolve("graalvm/lib/extra"));
+    assertTrue(manifest.verify(dist, SHA256));
+
+    Files.delete(dist.resolve("graalvm/release"));
+    assertFalse(manifest.verify(dist, SHA256));
+
+    assertNull(ExtractionManifest.read(tempDir.resolve("missing.manifest")));
+  }
+
+  /** Symbolic links are not counted, so an extraction containing them verifies. */
+  @Test
+  void testVerifySymbolicLink() throws IOException {
+    // given
+    Path dist = tempDir.resolve("dist");
+    Files.createDirectories(dist.resolve("graalvm/bin"));
+    Files.createDirectories(dist.resolve("graalvm/lib/installer/bin"));
+    Files.writeString(dist.resolve("graalvm/lib/installer/bin/gu"), "gu");
+    Files.createSymbolicLink(dist.resolve("graalvm/bin/gu"), Path.of("../lib/installer/bin/gu"));
+    Path file = tempDir.resolve("dist.manifest");
+
+    // when
+    ExtractionManifest.create(dist, SHA256).write(file);
+    ExtractionManifest manifest = ExtractionManifest.read(file);
+
+    // then
+    assertEquals(1, manifest.getFiles());
+    assertEquals("gu".length(), manifest.getSize());
+    assertTrue(manifest.verify(dist, SHA256));
+  }
+}
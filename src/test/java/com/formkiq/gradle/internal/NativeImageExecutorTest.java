@@ -3,12 +3,18 @@ package com.formkiq.gradle.internal;
 import static org.junit.jupiter.api.Assertions.*;
 
 import com.formkiq.gradle.GraalvmNativeExtension;
+import com.formkiq.gradle.NativeImageSpec;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.stream.Stream;
 import org.gradle.api.Project;
 import org.gradle.testfixtures.ProjectBuilder;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 class NativeImageExecutorNoMockTest {
 
@@ -29,7 +35,7 @@ class NativeImageExecutorNoMockTest {
     extension.setOutputFileName("my-app");
     extension.setMainClassName("com.example.Main");
 
-    NativeImageExecutor executor = new NativeImageExecutor(extension);
+    NativeImageExecutor executor = new NativeImageExecutor(NativeImageSpec.of(extension));
 
     // when
     List<String> args = executor.getBuildGraalvmImageArguments(project.getName(), fakeBuildDir);
@@ -46,7 +52,7 @@ class NativeImageExecutorNoMockTest {
     // given
     GraalvmNativeExtension extension = new GraalvmNativeExtension(project.getObjects());
     extension.setMainClassName("com.example.Main");
-    NativeImageExecutor executor = new NativeImageExecutor(extension);
+    NativeImageExecutor executor = new NativeImageExecutor(NativeImageSpec.of(extension));
 
     // when
     List<String> args = executor.getBuildGraalvmImageArguments(project.getName(), fakeBuildDir);
@@ -64,7 +70,7 @@ class NativeImageExecutorNoMockTest {
     GraalvmNativeExtension extension = new GraalvmNativeExtension(project.getObjects());
     extension.setBuildOptions("-Os -o fk");
     extension.setMainClassName("com.example.Main");
-    NativeImageExecutor executor = new NativeImageExecutor(extension);
+    NativeImageExecutor executor = new NativeImageExecutor(NativeImageSpec.of(extension));
 
     // when
     List<String> args = executor.getBuildGraalvmImageArguments(project.getName(), fakeBuildDir);
@@ -78,4 +84,48 @@ class NativeImageExecutorNoMockTest {
     assertEquals("--enable-http", args.get(i++));
     assertEquals("--enable-https", args.get(i));
   }
+
+  /** With jars passed directly. */
+  @Test
+  void testGetBuildGraalvmImageArguments04() {
+    // given
+    GraalvmNativeExtension extension = new GraalvmNativeExtension(project.getObjects());
+    extension.setMainClassName("com.example.Main");
+    extension.setClasspathMode("jars");
+    NativeImageExecutor executor = new NativeImageExecutor(NativeImageSpec.of(extension));
+    File jar = new File("lib.jar");
+
+    // when
+    List<String> args =
+        executor.getBuildGraalvmImageArguments(project.getName(), fakeBuildDir, List.of(jar));
+
+    // then
+    String classpath = args.get(args.indexOf("-cp") + 1);
+    assertEquals(jar.getAbsolutePath(), classpath);
+    assertFalse(classpath.contains(NativeImageExecutor.GRAALVM_JAVA_MAIN));
+  }
+
+  /** Binary and reports are moved out of the working directory. */
+  @Test
+  void testCollectOutputs01(@TempDir final Path tempDir) throws IOException {
+    // given
+    Path workingDir = tempDir.resolve("tmp");
+    Files.createDirectories(workingDir.resolve(NativeImageExecutor.REPORTS));
+    Files.writeString(workingDir.resolve("app"), "binary");
+    Files.writeString(workingDir.resolve(NativeImageExecutor.REPORTS).resolve("call_tree.txt"),
+        "report");
+    Path outputDir = tempDir.resolve("output");
+    Path reportsDir = tempDir.resolve("reports");
+
+    // when
+    NativeImageExecutor.collectOutputs(workingDir, outputDir, reportsDir);
+
+    // then
+    assertEquals("binary", Files.readString(outputDir.resolve("app")));
+    assertEquals("report", Files.readString(reportsDir.resolve("call_tree.txt")));
+    assertFalse(Files.exists(outputDir.resolve(NativeImageExecutor.REPORTS)));
+    try (Stream<Path> files = Files.list(workingDir)) {
+      assertEquals(0, files.count());
+    }
+  }
 }
@@ -0,0 +1,32 @@
+package com.formkiq.gradle.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+
+/** Unit tests for {@link NativeImageStatistics}. */
+class NativeImageStatisticsTest {
+
+  /** Peak RSS and CPU load are read from the build summary and the output is forwarded. */
+  @Test
+  void testParse() throws IOException {
+    // given
+    String output = "Finished generating 'app' in 1m 2s.\n"
+        + "    12.3s (9.4% of total time) in 94 GCs | Peak RSS: 3.50GB | CPU load: 7.66\n";
+    ByteArrayOutputStream forwarded = new ByteArrayOutputStream();
+
+    // when
+    NativeImageStatistics statistics = new NativeImageStatistics(forwarded);
+    try (statistics) {
+      statistics.write(output.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // then
+    assertEquals(output, forwarded.toString(StandardCharsets.UTF_8));
+    assertEquals(3584L * 1024 * 1024, statistics.getPeakRss());
+    assertEquals(7.66, statistics.getCpuLoad(), 0.001);
+  }
+}
@@ -0,0 +1,107 @@
+package com.formkiq.gradle.internal;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Unit tests for {@link TarExtractor}. */
+class TarExtractorTest {
+
+  /** Temp Directory. */
+  @TempDir
+  private Path tempDir;
+
+  /** Extract files, empty files and symbolic links with less buffer than a single file. */
+  @Test
+  void testExtract() throws IOException {
+    // given
+    final int files = 8;
+    final int size = 2 * 1024 * 1024 + 11;
+    byte[][] contents = new byte[files][size];
+    Random random = new Random(1);
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (TarArchiveOutputStream out = new TarArchiveOutputStream(bytes)) {
+      for (int i = 0; i < files; i++) {
+        random.nextBytes(contents[i]);
+        TarArchiveEntry entry = new TarArchiveEntry("graalvm/lib/file" + i);
+        entry.setSize(size);
+        out.putArchiveEntry(entry);
+        out.write(contents[i]);
+        out.closeArchiveEntry();
+      }
+
+      TarArchiveEntry empty = new TarArchiveEntry("graalvm/empty");
+      out.putArchiveEntry(empty);
+      out.closeArchiveEntry();
+
+      TarArchiveEntry link = new TarArchiveEntry("graalvm/bin/link", TarArchiveEntry.LF_SYMLINK);
+      link.setLinkName("../lib/file0");
+      out.putArchiveEntry(link);
+      out.closeArchiveEntry();
+    }
+
+    Path outputDir = tempDir.resolve("dist");
+
+    // when
+    try (TarArchiveInputStream in =
+        new TarArchiveInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+      new TarExtractor(4, 1024).extract(in, outputDir);
+    }
+
+    // then
+    for (int i = 0; i < files; i++) {
+      assertArrayEquals(contents[i], Files.readAllBytes(outputDir.resolve("graalvm/lib/file" + i)));
+    }
+    assertEquals(0, Files.size(outputDir.resolve("graalvm/empty")));
+    assertTrue(Files.isSymbolicLink(outputDir.resolve("graalvm/bin/link")));
+    assertArrayEquals(contents[0], Files.readAllBytes(outputDir.resolve("graalvm/bin/link")));
+  }
+
+  /** Chunks of small files are charged their buffer's capacity, bounding the leased memory. */
+  @Test
+  void testExtractSmallFiles() throws IOException {
+    // given
+    final int files = 2000;
+    final int size = 512;
+    final int maxBuffered = 4 * BufferPool.DEFAULT_BUFFER_SIZE;
+    byte[] content = new byte[size];
+    new Random(1).nextBytes(content);
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (TarArchiveOutputStream out = new TarArchiveOutputStream(bytes)) {
+      for (int i = 0; i < files; i++) {
+        TarArchiveEntry entry = new TarArchiveEntry("graalvm/lib/file" + i);
+        entry.setSize(size);
+        out.putArchiveEntry(entry);
+        out.write(content);
+        out.closeArchiveEntry();
+      }
+    }
+
+    Path outputDir = tempDir.resolve("small");
+    BufferPool pool = new BufferPool(BufferPool.DEFAULT_BUFFER_SIZE, 2);
+
+    // when
+    try (TarArchiveInputStream in =
+        new TarArchiveInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+      new TarExtractor(4, maxBuffered, pool).extract(in, outputDir);
+    }
+
+    // then
+    assertTrue(pool.getPeakLeased() <= maxBuffered, "peak leased " + pool.getPeakLeased());
+    assertArrayEquals(content, Files.readAllBytes(outputDir.resolve("graalvm/lib/file" + 1999)));
+  }
+}
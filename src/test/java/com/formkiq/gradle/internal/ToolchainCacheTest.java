@@ -0,0 +1,109 @@
+package com.formkiq.gradle.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Unit tests for {@link ToolchainCache}. */
+class ToolchainCacheTest {
+
+  /** Temp Directory. */
+  @TempDir
+  private Path tempDir;
+
+  /** Entry is only provisioned once. */
+  @Test
+  void testProvisionOnce() throws IOException {
+    // given
+    ToolchainCache cache = new ToolchainCache(tempDir, ToolchainCache.DEFAULT_MAX_SIZE);
+    AtomicInteger count = new AtomicInteger();
+    String key = ToolchainCache.key("graalvm", "24.0.1", "java24", "linux-x64");
+
+    // when
+    Path entry0 = cache.provision(key, dir -> {
+      count.incrementAndGet();
+      Files.writeString(dir.resolve("native-image"), "test");
+    });
+    Path entry1 = cache.provision(key, dir -> count.incrementAndGet());
+
+    // then
+    assertEquals(1, count.get());
+    assertEquals(entry0, entry1);
+    assertEquals("graalvm-24.0.1-java24-linux-x64", entry0.getFileName().toString());
+    assertTrue(Files.exists(entry0.resolve("native-image")));
+  }
+
+  /** Failed provisioning is retried. */
+  @Test
+  void testProvisionIncomplete() throws IOException {
+    // given
+    ToolchainCache cache = new ToolchainCache(tempDir, ToolchainCache.DEFAULT_MAX_SIZE);
+    AtomicInteger count = new AtomicInteger();
+
+    // when
+    try {
+      cache.provision("test", dir -> {
+        count.incrementAndGet();
+        throw new IOException("failed");
+      });
+    } catch (IOException e) {
+      // expected
+    }
+    cache.provision("test", dir -> count.incrementAndGet());
+
+    // then
+    assertEquals(2, count.get());
+  }
+
+  /** Complete entry failing verification is provisioned again. */
+  @Test
+  void testProvisionVerificationFailed() throws IOException {
+    // given
+    ToolchainCache cache = new ToolchainCache(tempDir, ToolchainCache.DEFAULT_MAX_SIZE);
+    AtomicInteger count = new AtomicInteger();
+    Path entry = cache.provision("test", dir -> {
+      count.incrementAndGet();
+      Files.writeString(dir.resolve("native-image"), "test");
+    });
+    Files.delete(entry.resolve("native-image"));
+
+    // when
+    cache.provision("test", dir -> Files.exists(dir.resolve("native-image")), dir -> {
+      count.incrementAndGet();
+      Files.writeString(dir.resolve("native-image"), "test");
+    });
+
+    // then
+    assertEquals(2, count.get());
+    assertTrue(Files.exists(entry.resolve("native-image")));
+  }
+
+  /** Least recently used entries are evicted once over the maximum size. */
+  @Test
+  void testEviction() throws IOException {
+    // given
+    final int size = 1000;
+    ToolchainCache cache = new ToolchainCache(tempDir, size + size / 2);
+
+    Path old = cache.provision("old", dir -> Files.write(dir.resolve("data"), new byte[size]));
+    Files.setLastModifiedTime(old.resolve(".lastUsed"),
+        FileTime.fromMillis(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(1)));
+
+    // when
+    Path current =
+        cache.provision("current", dir -> Files.write(dir.resolve("data"), new byte[size]));
+
+    // then
+    assertFalse(Files.exists(old));
+    assertTrue(Files.exists(current.resolve("data")));
+  }
+}
@@ -70,4 +70,23 @@ class GraalVmUrlBuilderTest {
     Exception ex = assertThrows(IllegalStateException.class, builder::build);
     assertEquals("Platform must be specified", ex.getMessage());
   }
+
+  @Test
+  @DisplayName("Mirror urls")
+  void testMirrors() {
+    GraalVmUrlBuilder.Builder builder = GraalVmUrlBuilder.builder().withJavaVersion("24")
+        .withVersion("24.0.1").withPlatform(Platform.LINUX_X64)
+        .withMirrors(List.of("file:///mnt/mirror/", "maven:https://repo.example.com/releases"));
+
+    List<String> urls = builder.buildMirrors();
+
+    assertEquals("file:///mnt/mirror/jdk-24.0.1/graalvm-community-jdk-24.0.1_linux-x64_bin.tar.gz",
+        urls.get(0));
+    assertEquals("file:///mnt/mirror/graalvm-community-jdk-24.0.1_linux-x64_bin.tar.gz",
+        urls.get(1));
+    assertEquals("https://repo.example.com/releases/org/graalvm/graalvm-ce/24.0.1/"
+        + "graalvm-ce-24.0.1-24-linux-x64.tar.gz", urls.get(urls.size() - 1));
+    assertTrue(GraalVmUrlBuilder.builder().withJavaVersion("24").withVersion("24.0.1")
+        .withPlatform(Platform.LINUX_X64).buildMirrors().isEmpty());
+  }
 }
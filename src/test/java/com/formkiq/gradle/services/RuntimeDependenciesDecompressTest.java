@@ -0,0 +1,76 @@
+package com.formkiq.gradle.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.gradle.api.Project;
+import org.gradle.testfixtures.ProjectBuilder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Unit tests for {@link RuntimeDependenciesDecompress}. */
+class RuntimeDependenciesDecompressTest {
+
+  /** Old last modified time, to detect rewritten files. */
+  private static final FileTime OLD = FileTime.fromMillis(1000000000000L);
+
+  /** Temp Directory. */
+  @TempDir
+  private Path tempDir;
+
+  private static void jar(final Path jar, final String... entries) throws IOException {
+    try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(jar))) {
+      for (int i = 0; i < entries.length; i += 2) {
+        out.putNextEntry(new ZipEntry(entries[i]));
+        out.write(entries[i + 1].getBytes(StandardCharsets.UTF_8));
+      }
+    }
+  }
+
+  /** Only changed entries are written and entries of removed jars are deleted. */
+  @Test
+  void testIncremental() throws IOException {
+    // given
+    Project project = ProjectBuilder.builder().withProjectDir(tempDir.toFile()).build();
+    Path buildDir = tempDir.resolve("build/graalvm");
+    Path libs = tempDir.resolve("build/libs");
+    Files.createDirectories(buildDir);
+    Files.createDirectories(libs);
+    Path main = buildDir.resolve("java/main");
+
+    Path a = tempDir.resolve("a.jar");
+    Path b = tempDir.resolve("b.jar");
+    jar(a, "a/A.class", "A", "common.txt", "from a");
+    jar(b, "b/B.class", "B", "common.txt", "from b");
+    jar(libs.resolve("app.jar"), "app/App.class", "App1", "app/Util.class", "Util");
+
+    // when
+    new RuntimeDependenciesDecompress().apply(buildDir, project.files(a, b, b));
+
+    // then
+    assertEquals("from a", Files.readString(main.resolve("common.txt")));
+    assertEquals("App1", Files.readString(main.resolve("app/App.class")));
+
+    // given
+    Files.setLastModifiedTime(main.resolve("app/Util.class"), OLD);
+    Files.setLastModifiedTime(main.resolve("b/B.class"), OLD);
+    jar(libs.resolve("app.jar"), "app/App.class", "App2", "app/Util.class", "Util");
+
+    // when
+    new RuntimeDependenciesDecompress().apply(buildDir, project.files(b));
+
+    // then
+    assertFalse(Files.exists(main.resolve("a/A.class")));
+    assertEquals("from b", Files.readString(main.resolve("common.txt")));
+    assertEquals("App2", Files.readString(main.resolve("app/App.class")));
+    assertEquals(OLD, Files.getLastModifiedTime(main.resolve("app/Util.class")));
+    assertEquals(OLD, Files.getLastModifiedTime(main.resolve("b/B.class")));
+  }
+}